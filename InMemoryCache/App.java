@@ -1,13 +1,38 @@
 package InMemoryCache;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
 
 class Node<K,V>{
     K key;
     V value;
     Node<K,V> prev;
     Node<K,V> next;
+    byte queueType; // which EvictionPolicy queue the node is linked into
+    int weight;     // Weigher result, kept so removal never has to re-weigh
     public Node(){
     }
 
@@ -40,6 +65,14 @@ class DoublyLinkedList<K,V>{
         node.next.prev = node.prev;
     }
 
+    public Node<K,V> peekFirst(){
+        return head.next == tail ? null : head.next;
+    }
+
+    public Node<K,V> peekLast(){
+        return tail.prev == head ? null : tail.prev;
+    }
+
     public Node<K,V> removeLast(){
         if(tail.prev == head){
             return null; //list is empty
@@ -54,52 +87,394 @@ class DoublyLinkedList<K,V>{
 class LRUCache<K,V>{
     private final int captacity;
     private Map<K, Node<K,V>> cache;
-    private DoublyLinkedList<K,V> dll;
+    private EvictionPolicy<K,V> policy;
+    private LongSupplier ticker = System::nanoTime;
+    private long expireAfterWriteNanos;
+    private long expireAfterAccessNanos;
+    private TimerWheel<K,V> timerWheel; // null unless an expiry is configured
+    private long refreshAfterWriteNanos;
+    private Executor refreshExecutor = ForkJoinPool.commonPool();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+    private StatsCounter statsCounter = DisabledStatsCounter.INSTANCE;
+    private RemovalListener<K,V> removalListener; // null means nobody is listening
+    private Executor listenerExecutor = ForkJoinPool.commonPool();
+    private Weigher<? super K, ? super V> weigher; // null means entries are only counted
+    private long maximumWeight = Long.MAX_VALUE;
+    private long totalWeight;
     
 
     public LRUCache(int capacity){
+        this(capacity, new LruPolicy<>());
+    }
+
+    public LRUCache(int capacity, EvictionPolicy<K,V> policy){
         this.captacity = capacity;
         this.cache = new ConcurrentHashMap<>();
-        this.dll = new DoublyLinkedList<>();
+        this.policy = policy;
+    }
+
+    // Entries expire this long after they were created or last replaced.
+    // Configure before the first putKey.
+    public synchronized LRUCache<K,V> expireAfterWrite(long duration, TimeUnit unit){
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+        this.timerWheel = new TimerWheel<>(ticker.getAsLong());
+        return this;
+    }
+
+    // Entries expire this long after their last getKey or putKey.
+    // Configure before the first putKey.
+    public synchronized LRUCache<K,V> expireAfterAccess(long duration, TimeUnit unit){
+        this.expireAfterAccessNanos = unit.toNanos(duration);
+        this.timerWheel = new TimerWheel<>(ticker.getAsLong());
+        return this;
+    }
+
+    // get(key, loader) returns an entry older than this as-is but reloads it in the
+    // background, so hot keys are refreshed before they ever miss. Entries written before
+    // this is configured carry no write time and are only refreshed once replaced.
+    public synchronized LRUCache<K,V> refreshAfterWrite(long duration, TimeUnit unit){
+        this.refreshAfterWriteNanos = unit.toNanos(duration);
+        return this;
     }
 
+    // Where background refreshes run; defaults to the common ForkJoinPool.
+    public synchronized LRUCache<K,V> refreshExecutor(Executor executor){
+        this.refreshExecutor = executor;
+        return this;
+    }
+
+    // Bounds the cache by the sum of entry weights instead of only by entry count:
+    // after every write, entries are evicted from the policy's tail until the total
+    // is back under maximumWeight. The entry-count capacity still applies as well.
+    // Configure before the first putKey.
+    public synchronized LRUCache<K,V> maximumWeight(long maximumWeight, Weigher<? super K, ? super V> weigher){
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        return this;
+    }
+
+    public synchronized long totalWeight(){
+        return totalWeight;
+    }
+
+    // Turns on hit/miss/load/eviction counting; off by default, in which case the
+    // counter is a no-op singleton and costs nothing.
+    public synchronized LRUCache<K,V> recordStats(){
+        return statsCounter(new ConcurrentStatsCounter());
+    }
+
+    // Lets several caches (e.g. the segments of a SegmentedLRUCache) share one counter.
+    synchronized LRUCache<K,V> statsCounter(StatsCounter statsCounter){
+        this.statsCounter = statsCounter;
+        return this;
+    }
+
+    public synchronized LRUCache<K,V> removalListener(RemovalListener<K,V> listener){
+        return removalListener(listener, ForkJoinPool.commonPool());
+    }
+
+    // Notifications run on the given executor, off the caller's thread and outside the lock.
+    // A same-thread executor such as Runnable::run is the exception: the listener then runs
+    // on the writer's thread while it still holds the cache lock.
+    public synchronized LRUCache<K,V> removalListener(RemovalListener<K,V> listener, Executor executor){
+        this.removalListener = listener;
+        this.listenerExecutor = executor;
+        return this;
+    }
+
+    public CacheStats stats(){
+        return statsCounter.snapshot();
+    }
+
+    // Time source in nanoseconds; replaceable so expiry can be driven by a fake clock.
+    synchronized LRUCache<K,V> ticker(LongSupplier ticker){
+        this.ticker = ticker;
+        if(timerWheel != null){
+            timerWheel = new TimerWheel<>(ticker.getAsLong());
+        }
+        return this;
+    }
 
     public synchronized Node<K,V> getKey(K key){
-        if(!cache.containsKey(key)){
-            return null;
+        return getNode(key);
+    }
+
+    public synchronized void putKey(K key, V value){
+        putNode(key, value, nowIfTimed());
+    }
+
+    // Looks up a batch under a single acquisition of the cache lock.
+    // The result holds only the keys that were present.
+    public synchronized Map<K,V> getAll(Collection<? extends K> keys){
+        Map<K,V> result = new HashMap<>((int) (keys.size() / 0.75f) + 1);
+        for(K key : keys){
+            Node<K,V> cacheNode = getNode(key);
+            if(cacheNode != null){
+                result.put(key, cacheNode.value);
+            }
+        }
+        return result;
+    }
+
+    // Like getAll, but every miss is fetched with one call to batchLoader (one round
+    // trip to the backing store) and cached before returning. Keys the loader does not
+    // return are left out of the result.
+    public Map<K,V> getAll(Collection<? extends K> keys, Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> batchLoader){
+        Map<K,V> result = getAll(keys);
+        Set<K> misses = new HashSet<>();
+        for(K key : keys){
+            if(!result.containsKey(key)){
+                misses.add(key);
+            }
+        }
+        if(misses.isEmpty()){
+            return result; // sizes can't tell us this: keys may repeat
         }
+        Map<? extends K, ? extends V> loaded;
+        long start = ticker.getAsLong();
+        try{
+            loaded = batchLoader.apply(misses);
+        }catch(RuntimeException | Error e){
+            statsCounter.recordLoadFailure(ticker.getAsLong() - start);
+            throw e;
+        }
+        statsCounter.recordLoadSuccess(ticker.getAsLong() - start);
+        putAll(loaded);
+        result.putAll(loaded);
+        return result;
+    }
+
+    // Inserts a batch under a single acquisition of the cache lock.
+    public synchronized void putAll(Map<? extends K, ? extends V> entries){
+        long now = nowIfTimed();
+        for(Map.Entry<? extends K, ? extends V> entry : entries.entrySet()){
+            putNode(entry.getKey(), entry.getValue(), now);
+        }
+    }
+
+    private Node<K,V> getNode(K key){
         Node<K,V> cacheNode = cache.get(key);
-        dll.removeNode(cacheNode);
-        dll.addToFront(cacheNode);
+        if(cacheNode == null){
+            statsCounter.recordMisses(1);
+            return null;
+        }
+        if(timerWheel != null){
+            TimedNode<K,V> timedNode = (TimedNode<K,V>) cacheNode;
+            long now = ticker.getAsLong();
+            if(timedNode.expiresAt - now <= 0){
+                expire(timedNode); // lazily, on access
+                statsCounter.recordMisses(1);
+                return null;
+            }
+            if(expireAfterAccessNanos > 0){
+                timedNode.expiresAt = expirationTime(timedNode, now);
+                timerWheel.reschedule(timedNode);
+            }
+        }
+        policy.recordAccess(cacheNode);
+        statsCounter.recordHits(1);
         return cacheNode;
     }
 
-    public synchronized void putKey(K key, V value){
-        if(cache.containsKey(key)){
-            Node<K,V> existingNode = cache.get(key);
-            dll.removeNode(existingNode);
+    // Returns the cached value, loading it on a miss. Concurrent misses for the same
+    // key share one load: the first caller runs the loader, the others wait on its
+    // future, so a cold hot key hits the backing store once instead of once per caller.
+    public V get(K key, Function<? super K, ? extends V> loader){
+        Node<K,V> cacheNode = getKey(key);
+        if(cacheNode != null){
+            if(refreshAfterWriteNanos > 0 && needsRefresh(cacheNode)){
+                refreshAsync(key, loader);
+            }
+            return cacheNode.value; // possibly stale while a refresh is in flight
+        }
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = inFlightLoads.putIfAbsent(key, load);
+        if(inFlight == null){
+            // A load that finished between our miss and claiming the slot already filled the cache.
+            Node<K,V> loaded = peek(key);
+            if(loaded != null){
+                inFlightLoads.remove(key, load);
+                return loaded.value;
+            }
+            runLoad(key, loader, load);
+            inFlight = load;
+        }
+        try{
+            return inFlight.join();
+        }catch(CompletionException e){
+            if(e.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private long nowIfTimed(){
+        return timerWheel != null || refreshAfterWriteNanos > 0 ? ticker.getAsLong() : 0;
+    }
+
+    private void putNode(K key, V value, long now){
+        if(timerWheel != null){
+            cleanUp(now);
+        }
+        Node<K,V> existingNode = cache.get(key);
+        if(existingNode != null){
+            policy.recordRemoval(existingNode);
+            deschedule(existingNode);
+            totalWeight -= existingNode.weight;
+            notifyRemoval(existingNode, RemovalCause.REPLACED);
         }else{
             if(cache.size() >= captacity){
-                System.out.println("Cache is full, evicting least recently used item.");
-                Node<K,V> lruNode = dll.removeLast();
-                System.out.println("Evicted Key: " + lruNode.key + ", Value: " + lruNode.value);
-                if(lruNode != null){
-                    cache.remove(lruNode.key);
-                }
+                evictOne();
             }
         }
-        Node<K,V> newNode = new Node<>(key,value);
-        dll.addToFront(newNode);
+        Node<K,V> newNode;
+        if(timerWheel != null){
+            TimedNode<K,V> timedNode = new TimedNode<>(key, value, now);
+            timedNode.expiresAt = expirationTime(timedNode, now);
+            timerWheel.schedule(timedNode);
+            newNode = timedNode;
+        }else if(refreshAfterWriteNanos > 0){
+            newNode = new TimedNode<>(key, value, now); // only the write time is needed
+        }else{
+            newNode = new Node<>(key,value);
+        }
+        if(weigher != null){
+            newNode.weight = weigher.weigh(key, value);
+            totalWeight += newNode.weight;
+        }
+        policy.recordInsertion(newNode);
         cache.put(key, newNode);
+        while(totalWeight > maximumWeight && evictOne()){
+            // an entry heavier than maximumWeight ends up evicting itself
+        }
+    }
+
+    private boolean evictOne(){
+        Node<K,V> lruNode = policy.selectVictim();
+        if(lruNode == null){
+            return false;
+        }
+        cache.remove(lruNode.key);
+        deschedule(lruNode);
+        totalWeight -= lruNode.weight;
+        statsCounter.recordEviction();
+        notifyRemoval(lruNode, RemovalCause.SIZE);
+        return true;
+    }
+
+    // Proactively removes every entry that is due. putKey already does this on each
+    // write; call it from a scheduler if the cache can sit idle with expired entries.
+    public synchronized void cleanUp(){
+        if(timerWheel != null){
+            cleanUp(ticker.getAsLong());
+        }
+    }
+
+    public int size(){
+        return cache.size();
+    }
+
+    // Reads a live entry without touching recency, expiry or stats.
+    private synchronized Node<K,V> peek(K key){
+        Node<K,V> cacheNode = cache.get(key);
+        if(cacheNode != null && timerWheel != null && ((TimedNode<K,V>) cacheNode).expiresAt - ticker.getAsLong() <= 0){
+            return null;
+        }
+        return cacheNode;
+    }
+
+    private boolean needsRefresh(Node<K,V> node){
+        return node instanceof TimedNode<K,V> timedNode && ticker.getAsLong() - timedNode.writeTime >= refreshAfterWriteNanos;
+    }
+
+    private void refreshAsync(K key, Function<? super K, ? extends V> loader){
+        if(inFlightLoads.containsKey(key)){
+            return; // a load or refresh is already running
+        }
+        CompletableFuture<V> refresh = new CompletableFuture<>();
+        if(inFlightLoads.putIfAbsent(key, refresh) == null){
+            try{
+                refreshExecutor.execute(() -> runLoad(key, loader, refresh));
+            }catch(RejectedExecutionException e){
+                inFlightLoads.remove(key, refresh);
+            }
+        }
+    }
+
+    // Runs the loader outside the cache lock and publishes the result. A failed
+    // refresh leaves the stale value in place; the next hit will try again.
+    private void runLoad(K key, Function<? super K, ? extends V> loader, CompletableFuture<V> future){
+        long start = ticker.getAsLong();
+        try{
+            V value = loader.apply(key);
+            statsCounter.recordLoadSuccess(ticker.getAsLong() - start);
+            if(value != null){
+                putKey(key, value);
+            }
+            future.complete(value);
+        }catch(Throwable t){
+            statsCounter.recordLoadFailure(ticker.getAsLong() - start);
+            future.completeExceptionally(t);
+        }finally{
+            inFlightLoads.remove(key, future);
+        }
+    }
+
+    private void cleanUp(long now){
+        timerWheel.advance(now, this::expire);
+    }
+
+    private long expirationTime(TimedNode<K,V> node, long now){
+        long expiresAt = Long.MAX_VALUE;
+        if(expireAfterWriteNanos > 0){
+            expiresAt = node.writeTime + expireAfterWriteNanos;
+        }
+        if(expireAfterAccessNanos > 0){
+            expiresAt = Math.min(expiresAt, now + expireAfterAccessNanos);
+        }
+        return expiresAt;
+    }
+
+    private void expire(TimedNode<K,V> node){
+        cache.remove(node.key);
+        policy.recordRemoval(node);
+        timerWheel.deschedule(node);
+        totalWeight -= node.weight;
+        statsCounter.recordEviction();
+        notifyRemoval(node, RemovalCause.EXPIRED);
+    }
+
+    private void notifyRemoval(Node<K,V> node, RemovalCause cause){
+        RemovalListener<K,V> listener = removalListener;
+        if(listener == null){
+            return;
+        }
+        K key = node.key;
+        V value = node.value;
+        try{
+            listenerExecutor.execute(() -> listener.onRemoval(key, value, cause));
+        }catch(RejectedExecutionException e){
+            // Listener executor shut down: drop the notification rather than fail the write.
+        }
+    }
+
+    private void deschedule(Node<K,V> node){
+        if(timerWheel != null){
+            timerWheel.deschedule((TimedNode<K,V>) node);
+        }
     }
 }
 
 public class App {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         System.out.println("LRU Cache Implementation");
 
-        LRUCache<Integer,Integer> lruCache = new LRUCache<>(3);
+        LRUCache<Integer,Integer> lruCache = new LRUCache<Integer,Integer>(3)
+            .recordStats()
+            .removalListener((key, value, cause) ->
+                System.out.println("Evicted Key: " + key + ", Value: " + value + " (" + cause + ")"));
 
         lruCache.putKey(1, 100);
         lruCache.putKey(2, 200);
@@ -109,6 +484,379 @@ public class App {
         System.out.println("Get Key 1: " + (lruCache.getKey(1) != null ? lruCache.getKey(1).value : "null")); // Should print null
         System.out.println("Get Key 3: " + (lruCache.getKey(3) != null ? lruCache.getKey(3).value : "null"));
         System.out.println("Get Key 4: " + (lruCache.getKey(4) != null ? lruCache.getKey(4).value : "null"));
+        CacheStats stats = lruCache.stats();
+        System.out.println("Stats: " + stats);
+        assert stats.evictionCount() == 1 && stats.missCount() == 1 : "Expected one eviction and one miss";
+
+        testSegmentedReadThroughput();
+        testBufferedReadLatency();
+        testScanResistance();
+        testExpiry();
+        testOffHeapEviction();
+        testOffHeapMixedSizes();
+        testLongLongCache();
+        testLoadingCache();
+        testBulkOperations();
+        testWeightedEviction();
+    }
+
+    public static void testWeightedEviction() {
+        // 1 MB budget for values between 100 bytes and 256 KB.
+        LRUCache<Integer,byte[]> cache = new LRUCache<Integer,byte[]>(Integer.MAX_VALUE)
+            .maximumWeight(1 << 20, (key, value) -> value.length);
+        Random random = new Random(11);
+        for(int i = 0; i < 1_000; i++){
+            cache.putKey(i, new byte[100 + random.nextInt(256 * 1024)]);
+            assert cache.totalWeight() <= 1 << 20 : "Total weight exceeded the maximum: " + cache.totalWeight();
+        }
+        long recomputed = 0;
+        for(int i = 0; i < 1_000; i++){
+            Node<Integer,byte[]> node = cache.getKey(i);
+            if(node != null){
+                recomputed += node.value.length;
+            }
+        }
+        assert recomputed == cache.totalWeight() : "Incremental weight " + cache.totalWeight() + " != actual " + recomputed;
+        cache.putKey(-1, new byte[2 << 20]); // heavier than the whole budget
+        assert cache.getKey(-1) == null && cache.totalWeight() == 0 : "Oversized entry should not stay cached";
+        System.out.println("Weighted Eviction Test Passed!");
+    }
+
+    public static void testBulkOperations() {
+        SegmentedLRUCache<Integer,String> cache = new SegmentedLRUCache<Integer,String>(1_000, 8).recordStats();
+        Map<Integer,String> batch = new HashMap<>();
+        for(int i = 0; i < 100; i++){
+            batch.put(i, "v" + i);
+        }
+        cache.putAll(batch);
+
+        List<Integer> wanted = new ArrayList<>();
+        for(int i = 50; i < 150; i++){
+            wanted.add(i);
+        }
+        AtomicLong roundTrips = new AtomicLong();
+        Map<Integer,String> result = cache.getAll(wanted, misses -> {
+            roundTrips.incrementAndGet();
+            Map<Integer,String> loaded = new HashMap<>();
+            for(Integer key : misses){
+                loaded.put(key, "db" + key);
+            }
+            return loaded;
+        });
+        assert roundTrips.get() == 1 : "All misses should be loaded in one round trip";
+        assert result.size() == 100 && "v50".equals(result.get(50)) && "db149".equals(result.get(149)) : "Unexpected getAll result";
+        assert cache.getKey(149) != null : "Loaded entries should be cached";
+        CacheStats stats = cache.stats();
+        assert stats.hitCount() == 51 && stats.missCount() == 50 : "Segment stats should aggregate: " + stats;
+
+        // Repeated keys that are all cached must not reach the loader or count as a load.
+        List<Integer> repeated = List.of(1, 1, 2);
+        Function<Set<Integer>, Map<Integer,String>> failingLoader = misses -> {
+            throw new AssertionError("Loader called for " + misses);
+        };
+        assert cache.getAll(repeated, failingLoader).size() == 2 : "Duplicate keys should collapse";
+        LRUCache<Integer,String> single = new LRUCache<>(10);
+        single.putAll(Map.of(1, "v1", 2, "v2"));
+        assert single.getAll(repeated, failingLoader).size() == 2 : "Duplicate keys should collapse";
+        assert cache.stats().loadSuccessCount() == 1 && single.stats().loadSuccessCount() == 0 : "No load for an all-hit batch";
+        System.out.println("Bulk Operations Test Passed!");
+    }
+
+    public static void testLoadingCache() throws InterruptedException {
+        // Thundering herd: 50 callers miss the same key at once, the loader runs once.
+        LRUCache<String,String> cache = new LRUCache<>(100);
+        AtomicLong loads = new AtomicLong();
+        Function<String,String> slowLoader = key -> {
+            loads.incrementAndGet();
+            try { Thread.sleep(200); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            return "db:" + key;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        CountDownLatch latch = new CountDownLatch(50);
+        ConcurrentHashMap<String, Boolean> correct = new ConcurrentHashMap<>();
+        for(int i = 0; i < 50; i++){
+            final int caller = i;
+            executor.submit(() -> {
+                try{
+                    correct.put("caller" + caller, "db:hot".equals(cache.get("hot", slowLoader)));
+                } finally{
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        assert loads.get() == 1 : "Concurrent misses should coalesce into one load, got " + loads.get();
+        assert correct.size() == 50 && !correct.containsValue(false) : "Every caller should see the loaded value";
+
+        // Refresh-ahead: past refreshAfterWrite the stale value is served while it reloads.
+        AtomicLong clock = new AtomicLong();
+        AtomicLong version = new AtomicLong();
+        LRUCache<String,Long> refreshing = new LRUCache<String,Long>(100)
+            .ticker(clock::get)
+            .refreshAfterWrite(1, TimeUnit.MINUTES)
+            .refreshExecutor(Runnable::run); // run the reload inline so the test is deterministic
+        Function<String,Long> versionLoader = key -> version.incrementAndGet();
+        assert refreshing.get("config", versionLoader) == 1L;
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assert refreshing.get("config", versionLoader) == 1L : "Stale value should be served during refresh";
+        assert refreshing.get("config", versionLoader) == 2L : "Refreshed value should be visible afterwards";
+
+        // Refresh turned on after entries exist: the old plain entry is served, not cast.
+        LRUCache<String,Long> late = new LRUCache<>(100);
+        late.putKey("config", 0L);
+        late.ticker(clock::get).refreshAfterWrite(1, TimeUnit.MINUTES).refreshExecutor(Runnable::run);
+        assert late.get("config", versionLoader) == 0L : "Entry written before refreshAfterWrite is served as-is";
+        System.out.println("Loading Cache Test Passed!");
+    }
+
+    public static void testLongLongCache() {
+        // LinkedHashMap in access order is only the reference model here, not part of any cache.
+        LongLongLRUCache primitive = new LongLongLRUCache(64);
+        Random random = new Random(3);
+        Map<Long, Long> reference = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > 64;
+            }
+        };
+        for(int i = 0; i < 100_000; i++){
+            long key = random.nextInt(200);
+            if(random.nextBoolean()){
+                primitive.putKey(key, i);
+                reference.put(key, (long) i);
+            }else{
+                Long expected = reference.get(key);
+                long actual = primitive.getKey(key, -1);
+                assert actual == (expected == null ? -1 : expected) : "Mismatch for key " + key;
+            }
+        }
+        assert primitive.size() == reference.size() : "Size mismatch";
+        System.out.println("LongLong Cache Test Passed!");
+    }
+
+    public static void testOffHeapEviction() {
+        Serializer<String> utf8 = new Serializer<>() {
+            @Override
+            public byte[] serialize(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String deserialize(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+        // A 4 KB budget in 1 KB slabs: the byte budget, not the entry count, is what forces eviction.
+        OffHeapLRUCache<Integer,String> offHeap = new OffHeapLRUCache<>(1_000, new SlabAllocator(4 * 1024, 1024), utf8);
+        for(int i = 0; i < 1_000; i++){
+            offHeap.putKey(i, "value-" + i + "-" + "x".repeat(100));
+        }
+        assert offHeap.reservedBytes() <= 4 * 1024 : "Allocator exceeded its budget";
+        assert offHeap.getKey(0) == null : "Oldest entry should have been evicted to free slab space";
+        assert offHeap.getKey(999).startsWith("value-999-") : "Newest entry should be readable";
+        System.out.println("Off-Heap Cache Test Passed! (" + offHeap.size() + " entries in " + offHeap.reservedBytes() + " bytes)");
+    }
+
+    public static void testOffHeapMixedSizes() {
+        Serializer<String> utf8 = new Serializer<>() {
+            @Override
+            public byte[] serialize(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String deserialize(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+        // The whole 4 KB budget goes to the 128-byte class first; a 600-byte value then needs a slab back.
+        OffHeapLRUCache<Integer,String> offHeap = new OffHeapLRUCache<>(1_000, new SlabAllocator(4 * 1024, 1024), utf8);
+        for(int i = 0; i < 32; i++){
+            offHeap.putKey(i, "x".repeat(100));
+        }
+        offHeap.putKey(100, "y".repeat(600));
+        assert offHeap.getKey(100).length() == 600 : "Large value should have been stored";
+        assert offHeap.size() == 25 : "Only one slab's worth of small entries should be evicted, size " + offHeap.size();
+        assert offHeap.getKey(31) != null : "Recent small entries should survive";
+
+        // Replacing values with other sizes keeps the mapping and never runs out of space.
+        for(int round = 0; round < 200; round++){
+            int key = round % 40;
+            offHeap.putKey(key, "z".repeat(round % 2 == 0 ? 900 : 50));
+            assert offHeap.getKey(key).length() == (round % 2 == 0 ? 900 : 50) : "Replaced value lost for key " + key;
+        }
+        assert offHeap.reservedBytes() <= 4 * 1024 : "Allocator exceeded its budget";
+
+        // A value that can never fit is rejected before the old mapping is touched.
+        offHeap.putKey(7, "kept");
+        try {
+            offHeap.putKey(7, "w".repeat(2_000));
+            assert false : "Oversized value should be rejected";
+        } catch (IllegalArgumentException expected) {
+        }
+        assert "kept".equals(offHeap.getKey(7)) : "Failed put should keep the old value";
+        System.out.println("Off-Heap Mixed Sizes Test Passed! (" + offHeap.size() + " entries)");
+    }
+
+    public static void testExpiry() {
+        AtomicLong clock = new AtomicLong();
+        LRUCache<Integer,Integer> ttlCache = new LRUCache<Integer,Integer>(100)
+            .ticker(clock::get)
+            .expireAfterWrite(10, TimeUnit.SECONDS);
+        ttlCache.putKey(1, 100);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assert ttlCache.getKey(1) != null : "Entry should still be live after 5s";
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        assert ttlCache.getKey(1) == null : "Entry should expire 10s after write, even if read";
+
+        LRUCache<Integer,Integer> ttiCache = new LRUCache<Integer,Integer>(100)
+            .ticker(clock::get)
+            .expireAfterAccess(10, TimeUnit.SECONDS);
+        ttiCache.putKey(1, 100);
+        for(int i = 0; i < 5; i++){
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(8));
+            assert ttiCache.getKey(1) != null : "Reads should keep an expire-after-access entry alive";
+        }
+
+        // Proactive expiry: nothing reads these keys, the wheel removes them on its own.
+        for(int i = 2; i < 50; i++){
+            ttiCache.putKey(i, i);
+        }
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        ttiCache.cleanUp();
+        assert ttiCache.size() == 0 : "Timer wheel should have removed all idle entries, found " + ttiCache.size();
+        System.out.println("Expiry Test Passed!");
+    }
+
+    public static void testScanResistance() {
+        // Hot set of 800 keys, with every other access going to a key that is never seen again.
+        int capacity = 1_000;
+        int[] trace = new int[400_000];
+        Random random = new Random(42);
+        int scanKey = 1_000_000;
+        for(int i = 0; i < trace.length; i++){
+            trace[i] = (i & 1) == 1 ? scanKey++ : random.nextInt(800);
+        }
+
+        double lru = hitRatio(new LruPolicy<>(), capacity, trace);
+        double tinyLfu = hitRatio(new WTinyLfuPolicy<>(capacity), capacity, trace);
+        System.out.printf("Scan-polluted trace hit ratio: LRU %.3f, W-TinyLFU %.3f%n", lru, tinyLfu);
+        assert tinyLfu > lru : "W-TinyLFU should beat LRU on a scan-polluted trace";
+        System.out.println("Scan Resistance Test Passed!");
+    }
+
+    // Replays a trace against a policy the same way LRUCache drives it.
+    private static double hitRatio(EvictionPolicy<Integer,Integer> policy, int capacity, int[] trace) {
+        Map<Integer, Node<Integer,Integer>> entries = new HashMap<>();
+        int hits = 0;
+        for(int key : trace){
+            Node<Integer,Integer> node = entries.get(key);
+            if(node != null){
+                hits++;
+                policy.recordAccess(node);
+                continue;
+            }
+            if(entries.size() >= capacity){
+                entries.remove(policy.selectVictim().key);
+            }
+            node = new Node<>(key, key);
+            policy.recordInsertion(node);
+            entries.put(key, node);
+        }
+        return (double) hits / trace.length;
+    }
+
+    public static void testSegmentedReadThroughput() throws InterruptedException {
+        int keys = 10_000;
+        LRUCache<Integer,Integer> single = new LRUCache<>(keys);
+        SegmentedLRUCache<Integer,Integer> segmented = new SegmentedLRUCache<>(keys);
+        for(int i = 0; i < keys; i++){
+            single.putKey(i, i);
+            segmented.putKey(i, i);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        long singleNanos = timeReads(threads, keys, key -> single.getKey(key));
+        long segmentedNanos = timeReads(threads, keys, key -> segmented.getKey(key));
+        System.out.printf("%d threads: single lock %dms, %d segments %dms%n",
+            threads, singleNanos / 1_000_000, segmented.segmentCount(), segmentedNanos / 1_000_000);
+
+        for(int i = 0; i < keys; i++){
+            assert segmented.getKey(i) != null && segmented.getKey(i).value == i : "Segmented cache lost key " + i;
+        }
+        System.out.println("Segmented Cache Test Passed!");
+    }
+
+    public static void testBufferedReadLatency() throws InterruptedException {
+        int keys = 10_000;
+        LRUCache<Integer,Integer> locked = new LRUCache<>(keys);
+        BufferedLRUCache<Integer,Integer> buffered = new BufferedLRUCache<>(keys);
+        for(int i = 0; i < keys; i++){
+            locked.putKey(i, i);
+            buffered.putKey(i, i);
+        }
+
+        int readers = 64;
+        System.out.printf("%d readers: synchronized p99 %dns, buffered p99 %dns%n", readers,
+            p99ReadNanos(readers, keys, key -> locked.getKey(key)),
+            p99ReadNanos(readers, keys, key -> buffered.getKey(key)));
+
+        buffered.putKey(keys, keys); // evicts exactly one entry
+        int present = 0;
+        for(int i = 0; i <= keys; i++){
+            if(buffered.getKey(i) != null){
+                present++;
+            }
+        }
+        assert present == keys : "Buffered cache should hold exactly its capacity, found " + present;
+        System.out.println("Buffered Cache Test Passed!");
+    }
+
+    private static long p99ReadNanos(int threads, int keys, IntConsumer read) throws InterruptedException {
+        int readsPerThread = 20_000;
+        long[] latencies = new long[threads * readsPerThread];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++){
+            final int offset = t * readsPerThread;
+            executor.submit(() -> {
+                try{
+                    for(int i = 0; i < readsPerThread; i++){
+                        long start = System.nanoTime();
+                        read.accept((i * 31 + offset) % keys);
+                        latencies[offset + i] = System.nanoTime() - start;
+                    }
+                } finally{
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        Arrays.sort(latencies);
+        return latencies[(int) (latencies.length * 0.99)];
+    }
+
+    private static long timeReads(int threads, int keys, IntConsumer read) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for(int t = 0; t < threads; t++){
+            final int seed = t;
+            executor.submit(() -> {
+                try{
+                    for(int i = 0; i < 1_000_000; i++){
+                        read.accept((i * 31 + seed) % keys);
+                    }
+                } finally{
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        return System.nanoTime() - start;
     }
     
 }
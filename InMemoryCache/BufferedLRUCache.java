@@ -0,0 +1,151 @@
+package InMemoryCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Striped, lossy ring buffer of read events (Caffeine's "read buffer").
+// Readers only do a CAS on their stripe's write counter; if the stripe is full or
+// the CAS loses a race the event is dropped, which merely makes the LRU order
+// slightly less precise. Draining is done by whoever holds the cache's eviction lock.
+class ReadBuffer<K,V>{
+    private static final int STRIPE_SIZE = 16; // power of two
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+    private final AtomicReferenceArray<Node<K,V>>[] stripes;
+    private final AtomicLong[] writeCounts;
+    private final long[] readCounts; // only touched while holding the eviction lock
+    private final int stripeMask;
+
+    public ReadBuffer(){
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+        this.stripes = newStripeArray(stripeCount);
+        this.writeCounts = new AtomicLong[stripeCount];
+        this.readCounts = new long[stripeCount];
+        this.stripeMask = stripeCount - 1;
+        for(int i = 0; i < stripeCount; i++){
+            stripes[i] = new AtomicReferenceArray<>(STRIPE_SIZE);
+            writeCounts[i] = new AtomicLong();
+        }
+    }
+
+    // Returns true when the caller's stripe is full and should be drained.
+    public boolean offer(Node<K,V> node){
+        int stripe = stripeIndex();
+        AtomicLong writeCount = writeCounts[stripe];
+        long tail = writeCount.get();
+        // readCounts is read racily; a stale value only makes the buffer look fuller.
+        if(tail - readCounts[stripe] >= STRIPE_SIZE){
+            return true;
+        }
+        if(writeCount.compareAndSet(tail, tail + 1)){
+            stripes[stripe].lazySet((int) tail & STRIPE_MASK, node);
+        }
+        return false;
+    }
+
+    // Caller must hold the eviction lock.
+    public void drainTo(DoublyLinkedList<K,V> dll){
+        for(int stripe = 0; stripe < stripes.length; stripe++){
+            AtomicReferenceArray<Node<K,V>> buffer = stripes[stripe];
+            long head = readCounts[stripe];
+            long tail = writeCounts[stripe].get();
+            for(; head < tail; head++){
+                int index = (int) head & STRIPE_MASK;
+                Node<K,V> node = buffer.get(index);
+                if(node == null){
+                    break; // slot claimed but not yet published; pick it up next drain
+                }
+                buffer.lazySet(index, null);
+                if(node.prev != null){ // skip nodes evicted or replaced since the read
+                    dll.removeNode(node);
+                    dll.addToFront(node);
+                }
+            }
+            readCounts[stripe] = head;
+        }
+    }
+
+    private int stripeIndex(){
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & stripeMask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K,V> AtomicReferenceArray<Node<K,V>>[] newStripeArray(int length){
+        return (AtomicReferenceArray<Node<K,V>>[]) new AtomicReferenceArray<?>[length];
+    }
+}
+
+// LRUCache variant whose hits never block: getKey reads the ConcurrentHashMap
+// directly and only records the access in a ReadBuffer. The recency reordering
+// happens later, in batches, under a single lock that readers merely try to take.
+class BufferedLRUCache<K,V>{
+    private final int captacity;
+    private final Map<K, Node<K,V>> cache;
+    private final DoublyLinkedList<K,V> dll;
+    private final ReadBuffer<K,V> readBuffer;
+    private final ReentrantLock evictionLock;
+
+    public BufferedLRUCache(int capacity){
+        this.captacity = capacity;
+        this.cache = new ConcurrentHashMap<>();
+        this.dll = new DoublyLinkedList<>();
+        this.readBuffer = new ReadBuffer<>();
+        this.evictionLock = new ReentrantLock();
+    }
+
+    public Node<K,V> getKey(K key){
+        Node<K,V> cacheNode = cache.get(key);
+        if(cacheNode == null){
+            return null;
+        }
+        if(readBuffer.offer(cacheNode)){
+            tryDrainReadBuffer();
+        }
+        return cacheNode;
+    }
+
+    public void putKey(K key, V value){
+        Node<K,V> newNode = new Node<>(key,value);
+        evictionLock.lock();
+        try{
+            readBuffer.drainTo(dll);
+            Node<K,V> existingNode = cache.put(key, newNode);
+            if(existingNode != null){
+                unlink(existingNode);
+            }else if(cache.size() > captacity){
+                Node<K,V> lruNode = dll.removeLast();
+                if(lruNode != null){
+                    cache.remove(lruNode.key);
+                    lruNode.prev = null;
+                    lruNode.next = null;
+                }
+            }
+            dll.addToFront(newNode);
+        }finally{
+            evictionLock.unlock();
+        }
+    }
+
+    private void tryDrainReadBuffer(){
+        // Readers never wait: if a writer or another reader is already
+        // draining, this access is reordered by them or simply dropped.
+        if(evictionLock.tryLock()){
+            try{
+                readBuffer.drainTo(dll);
+            }finally{
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    // Marks the node dead so buffered reads of it are ignored on drain.
+    private void unlink(Node<K,V> node){
+        dll.removeNode(node);
+        node.prev = null;
+        node.next = null;
+    }
+}
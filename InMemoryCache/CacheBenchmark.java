@@ -0,0 +1,183 @@
+package InMemoryCache;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Rough, single-run comparisons between cache layouts.
+// Run with a fixed heap so the numbers are comparable, e.g.
+//   java -Xms2g -Xmx2g -XX:+UseG1GC -XX:MaxDirectMemorySize=2g -cp out InMemoryCache.CacheBenchmark
+public class CacheBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        compareOnHeapAndOffHeap(200_000, 500); // 500 + 4-byte length header fits the 512-byte slot class
+        comparePrimitiveAndGeneric(1_000_000);
+        compareBatchSizes(4);
+    }
+
+    // Per-key cost of getKey in a loop vs one getAll per batch, with several threads
+    // sharing one LRUCache so the lock acquisitions are contended.
+    public static void compareBatchSizes(int threads) throws InterruptedException {
+        int entries = 100_000;
+        LRUCache<Integer, Integer> cache = new LRUCache<>(entries);
+        for (int i = 0; i < entries; i++) {
+            cache.putKey(i, i);
+        }
+        int keysPerThread = 2_000_000;
+        for (int batchSize : new int[] {1, 16, 128, 1024}) {
+            List<List<Integer>> batches = new ArrayList<>();
+            for (int start = 0; start + batchSize <= entries; start += batchSize) {
+                List<Integer> batch = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    batch.add((start + i) * 7 % entries);
+                }
+                batches.add(batch);
+            }
+            long loopNanos = runThreads(threads, () -> {
+                for (int done = 0, b = 0; done < keysPerThread; done += batchSize, b++) {
+                    for (Integer key : batches.get(b % batches.size())) {
+                        cache.getKey(key);
+                    }
+                }
+            });
+            long batchNanos = runThreads(threads, () -> {
+                for (int done = 0, b = 0; done < keysPerThread; done += batchSize, b++) {
+                    cache.getAll(batches.get(b % batches.size()));
+                }
+            });
+            double keys = (double) keysPerThread * threads;
+            System.out.printf("batch %4d: getKey loop %.1f ns/key, getAll %.1f ns/key%n",
+                batchSize, loopNanos / keys, batchNanos / keys);
+        }
+    }
+
+    private static long runThreads(int threads, Runnable work) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                try {
+                    work.run();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        return System.nanoTime() - start;
+    }
+
+    // Hit throughput and allocation per hit: LongLongLRUCache vs LRUCache<Long,Long>.
+    public static void comparePrimitiveAndGeneric(int entries) {
+        LongLongLRUCache primitive = new LongLongLRUCache(entries);
+        LRUCache<Long, Long> generic = new LRUCache<>(entries);
+        for (long i = 0; i < entries; i++) {
+            primitive.putKey(i, i);
+            generic.putKey(i, i);
+        }
+        int reads = 20_000_000;
+        for (int round = 0; round < 2; round++) { // first round is warm-up
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long sink = 0;
+            for (int i = 0; i < reads; i++) {
+                sink += primitive.getKey((i * 7919L) % entries, 0);
+            }
+            long primitiveNanos = System.nanoTime() - start;
+            long primitiveBytes = allocatedBytes() - allocatedBefore;
+
+            allocatedBefore = allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < reads; i++) {
+                sink += generic.getKey((i * 7919L) % entries).value;
+            }
+            long genericNanos = System.nanoTime() - start;
+            long genericBytes = allocatedBytes() - allocatedBefore;
+
+            if (round == 1) {
+                System.out.printf("LongLongLRUCache: %.1f ns/hit, %.1f B/hit | LRUCache<Long,Long>: %.1f ns/hit, %.1f B/hit [checksum %d]%n",
+                    (double) primitiveNanos / reads, (double) primitiveBytes / reads,
+                    (double) genericNanos / reads, (double) genericBytes / reads, sink & 1);
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    // Fills each cache with the same values, then overwrites random keys so both
+    // layouts churn their values, and reports retained heap and GC time.
+    public static void compareOnHeapAndOffHeap(int entries, int valueSize) {
+        Serializer<byte[]> identity = new Serializer<>() {
+            @Override
+            public byte[] serialize(byte[] value) {
+                return value;
+            }
+
+            @Override
+            public byte[] deserialize(byte[] bytes) {
+                return bytes;
+            }
+        };
+
+        long baseline = usedHeapAfterGc();
+        LRUCache<Integer, byte[]> onHeap = new LRUCache<>(entries);
+        GcSample onHeapGc = churn(entries, valueSize, (key, value) -> onHeap.putKey(key, value));
+        long onHeapBytes = usedHeapAfterGc() - baseline;
+        System.out.printf("On-heap  Node layout: %,d entries, heap %,d KB, GC %d collections / %dms%n",
+            onHeap.size(), onHeapBytes / 1024, onHeapGc.collections, onHeapGc.millis);
+
+        baseline = usedHeapAfterGc();
+        OffHeapLRUCache<Integer, byte[]> offHeap = new OffHeapLRUCache<>(entries, (long) entries * valueSize * 2, identity);
+        GcSample offHeapGc = churn(entries, valueSize, (key, value) -> offHeap.putKey(key, value));
+        long offHeapBytes = usedHeapAfterGc() - baseline;
+        System.out.printf("Off-heap slab layout: %,d entries, heap %,d KB (+%,d KB direct), GC %d collections / %dms%n",
+            offHeap.size(), offHeapBytes / 1024, offHeap.reservedBytes() / 1024, offHeapGc.collections, offHeapGc.millis);
+    }
+
+    private interface Put {
+        void put(Integer key, byte[] value);
+    }
+
+    private record GcSample(long collections, long millis) {
+    }
+
+    private static GcSample churn(int entries, int valueSize, Put cache) {
+        Random random = new Random(7);
+        GcSample before = gcTotals();
+        for (int i = 0; i < entries; i++) {
+            cache.put(i, new byte[valueSize]);
+        }
+        for (int i = 0; i < entries * 5; i++) {
+            cache.put(random.nextInt(entries), new byte[valueSize]);
+        }
+        GcSample after = gcTotals();
+        return new GcSample(after.collections - before.collections, after.millis - before.millis);
+    }
+
+    private static GcSample gcTotals() {
+        long collections = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new GcSample(collections, millis);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,41 @@
+package InMemoryCache;
+
+// Decides the order in which LRUCache entries are evicted. The cache owns the
+// key -> Node map and calls these hooks while holding its lock, so policies
+// need no synchronization of their own.
+interface EvictionPolicy<K,V>{
+    void recordAccess(Node<K,V> node);
+
+    void recordInsertion(Node<K,V> node);
+
+    void recordRemoval(Node<K,V> node);
+
+    // Unlinks and returns the entry to evict, or null if the policy tracks nothing.
+    Node<K,V> selectVictim();
+}
+
+// The classic policy: one DoublyLinkedList, most recently used at the head.
+class LruPolicy<K,V> implements EvictionPolicy<K,V>{
+    private final DoublyLinkedList<K,V> dll = new DoublyLinkedList<>();
+
+    @Override
+    public void recordAccess(Node<K,V> node){
+        dll.removeNode(node);
+        dll.addToFront(node);
+    }
+
+    @Override
+    public void recordInsertion(Node<K,V> node){
+        dll.addToFront(node);
+    }
+
+    @Override
+    public void recordRemoval(Node<K,V> node){
+        dll.removeNode(node);
+    }
+
+    @Override
+    public Node<K,V> selectVictim(){
+        return dll.removeLast();
+    }
+}
@@ -0,0 +1,144 @@
+package InMemoryCache;
+
+// LRUCache specialised for long keys and long values, with no per-entry objects.
+// Entry i lives at index i of four parallel arrays (keys, values, prev, next);
+// the recency list links entries by index, with index `capacity` as the dummy
+// head/tail of a circular list. A separate open-addressing table (linear probing,
+// at most half full) maps a key to its entry index + 1, 0 meaning empty.
+// Per entry: 8 + 8 + 4 + 4 bytes in the entry arrays + 2 x 4 bytes of table = ~32 bytes,
+// and a hit allocates nothing.
+class LongLongLRUCache{
+    private final int captacity;
+    private final long[] keys;
+    private final long[] values;
+    private final int[] prev;
+    private final int[] next;
+    private final int head; // sentinel index
+    private final int[] table;
+    private final int tableMask;
+    private int size;
+
+    public LongLongLRUCache(int capacity){
+        if(capacity <= 0 || capacity > (1 << 29)){
+            throw new IllegalArgumentException("capacity must be between 1 and 2^29");
+        }
+        this.captacity = capacity;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.prev = new int[capacity + 1];
+        this.next = new int[capacity + 1];
+        this.head = capacity;
+        prev[head] = head;
+        next[head] = head;
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.table = new int[tableSize];
+        this.tableMask = tableSize - 1;
+    }
+
+    // Returns the value and marks the key most recently used, or defaultValue on a miss.
+    public synchronized long getKey(long key, long defaultValue){
+        int slot = findSlot(key);
+        if(slot < 0){
+            return defaultValue;
+        }
+        int entry = table[slot] - 1;
+        moveToFront(entry);
+        return values[entry];
+    }
+
+    public synchronized boolean containsKey(long key){
+        return findSlot(key) >= 0;
+    }
+
+    public synchronized void putKey(long key, long value){
+        int slot = findSlot(key);
+        if(slot >= 0){
+            int entry = table[slot] - 1;
+            values[entry] = value;
+            moveToFront(entry);
+            return;
+        }
+        int entry;
+        if(size < captacity){
+            entry = size++;
+        }else{
+            // Reuse the least recently used entry's index for the new key.
+            entry = prev[head];
+            unlink(entry);
+            removeSlot(findSlot(keys[entry]));
+        }
+        keys[entry] = key;
+        values[entry] = value;
+        linkFirst(entry);
+        slot = (int) mix(key) & tableMask;
+        while(table[slot] != 0){
+            slot = (slot + 1) & tableMask;
+        }
+        table[slot] = entry + 1;
+    }
+
+    public synchronized int size(){
+        return size;
+    }
+
+    private int findSlot(long key){
+        int slot = (int) mix(key) & tableMask;
+        int entry;
+        while((entry = table[slot]) != 0){
+            if(keys[entry - 1] == key){
+                return slot;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe run into the hole so
+    // lookups never need tombstones.
+    private void removeSlot(int hole){
+        int slot = hole;
+        while(true){
+            slot = (slot + 1) & tableMask;
+            int entry = table[slot];
+            if(entry == 0){
+                table[hole] = 0;
+                return;
+            }
+            int ideal = (int) mix(keys[entry - 1]) & tableMask;
+            // Move it unless its ideal slot lies cyclically in (hole, slot].
+            boolean movable = hole <= slot ? (ideal <= hole || ideal > slot) : (ideal <= hole && ideal > slot);
+            if(movable){
+                table[hole] = entry;
+                hole = slot;
+            }
+        }
+    }
+
+    private void moveToFront(int entry){
+        unlink(entry);
+        linkFirst(entry);
+    }
+
+    private void linkFirst(int entry){
+        int first = next[head];
+        next[entry] = first;
+        prev[entry] = head;
+        prev[first] = entry;
+        next[head] = entry;
+    }
+
+    private void unlink(int entry){
+        next[prev[entry]] = next[entry];
+        prev[next[entry]] = prev[entry];
+    }
+
+    private static long mix(long key){
+        // Murmur3 fmix64: sequential ids must not land in sequential slots.
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
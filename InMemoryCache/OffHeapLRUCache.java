@@ -0,0 +1,112 @@
+package InMemoryCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Turns cache values into bytes for off-heap storage and back.
+interface Serializer<V>{
+    byte[] serialize(V value);
+
+    V deserialize(byte[] bytes);
+}
+
+// Index entry of OffHeapLRUCache: the value lives in a slab, the node only keeps
+// its address. The inherited value field stays null.
+class OffHeapNode<K> extends Node<K,Void>{
+    long address;
+
+    public OffHeapNode(K key, long address){
+        super(key, null);
+        this.address = address;
+    }
+}
+
+// LRUCache whose values are serialized into SlabAllocator memory outside the Java
+// heap. The heap only holds keys and fixed-size index nodes, so GC work no longer
+// grows with the size of the cached values. Bounded both by entry count and by the
+// allocator's byte budget; whichever runs out first triggers LRU eviction, and every
+// evicted or replaced entry returns its slot to the allocator. When a value of a new
+// size finds no room, LRU entries are evicted until a slab empties and can be lent
+// to that size class.
+class OffHeapLRUCache<K,V>{
+    private final int captacity;
+    private final Map<K, OffHeapNode<K>> cache;
+    private final DoublyLinkedList<K,Void> dll;
+    private final SlabAllocator allocator;
+    private final Serializer<V> serializer;
+
+    public OffHeapLRUCache(int capacity, long maxBytes, Serializer<V> serializer){
+        this(capacity, new SlabAllocator(maxBytes, 1 << 20), serializer);
+    }
+
+    public OffHeapLRUCache(int capacity, SlabAllocator allocator, Serializer<V> serializer){
+        this.captacity = capacity;
+        this.cache = new ConcurrentHashMap<>();
+        this.dll = new DoublyLinkedList<>();
+        this.allocator = allocator;
+        this.serializer = serializer;
+    }
+
+    public V getKey(K key){
+        byte[] bytes;
+        synchronized(this){
+            OffHeapNode<K> cacheNode = cache.get(key);
+            if(cacheNode == null){
+                return null;
+            }
+            dll.removeNode(cacheNode);
+            dll.addToFront(cacheNode);
+            bytes = allocator.read(cacheNode.address);
+        }
+        return serializer.deserialize(bytes); // outside the lock
+    }
+
+    public void putKey(K key, V value){
+        byte[] bytes = serializer.serialize(value);
+        if(bytes.length > allocator.maxValueSize()){
+            throw new IllegalArgumentException("Value of " + bytes.length + " bytes exceeds max value size " + allocator.maxValueSize());
+        }
+        synchronized(this){
+            if(!cache.containsKey(key) && cache.size() >= captacity){
+                evictLast();
+            }
+            // The new value is stored before the old one is let go, so a failed put leaves the old mapping.
+            long address;
+            while((address = allocator.allocate(bytes)) == SlabAllocator.NO_SPACE){
+                if(!evictLast()){
+                    // Unreachable while values fit a slab: an empty cache leaves every slab reclaimable.
+                    throw new IllegalStateException("No off-heap space for a value of " + bytes.length + " bytes");
+                }
+            }
+            OffHeapNode<K> existingNode = cache.get(key); // may itself have been evicted to make room
+            if(existingNode != null){
+                allocator.free(existingNode.address);
+                existingNode.address = address;
+                dll.removeNode(existingNode);
+                dll.addToFront(existingNode);
+            }else{
+                OffHeapNode<K> newNode = new OffHeapNode<>(key, address);
+                dll.addToFront(newNode);
+                cache.put(key, newNode);
+            }
+        }
+    }
+
+    public int size(){
+        return cache.size();
+    }
+
+    public synchronized long reservedBytes(){
+        return allocator.reservedBytes();
+    }
+
+    private boolean evictLast(){
+        OffHeapNode<K> lruNode = (OffHeapNode<K>) dll.removeLast();
+        if(lruNode == null){
+            return false;
+        }
+        cache.remove(lruNode.key);
+        allocator.free(lruNode.address);
+        return true;
+    }
+}
@@ -0,0 +1,15 @@
+package InMemoryCache;
+
+enum RemovalCause{
+    REPLACED, // putKey over an existing key
+    SIZE,     // evicted to stay within capacity
+    EXPIRED   // expire-after-write/access deadline passed
+}
+
+// Notified after an entry leaves the cache. LRUCache hands notifications to its
+// listener executor, so a slow listener cannot stall getKey/putKey; a same-thread
+// executor (Runnable::run) would run the listener under the cache lock instead.
+@FunctionalInterface
+interface RemovalListener<K,V>{
+    void onRemoval(K key, V value, RemovalCause cause);
+}
@@ -0,0 +1,163 @@
+package InMemoryCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Lock-striped LRU: the key space is split across independent LRUCache segments,
+// each with its own monitor, map and DoublyLinkedList. Threads touching different
+// segments never contend, so reads scale with the number of segments.
+// Eviction is LRU *per segment*: a segment evicts its own tail once it is full,
+// which approximates global LRU when keys hash evenly.
+class SegmentedLRUCache<K,V>{
+    private final LRUCache<K,V>[] segments;
+    private final int segmentMask;
+    private StatsCounter statsCounter = DisabledStatsCounter.INSTANCE;
+
+    public SegmentedLRUCache(int capacity){
+        this(capacity, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public SegmentedLRUCache(int capacity, int concurrencyLevel){
+        if(capacity <= 0 || concurrencyLevel <= 0){
+            throw new IllegalArgumentException("capacity and concurrencyLevel must be positive");
+        }
+        // Power of two so a segment is picked with a mask instead of a modulo,
+        // and never more segments than entries (every segment holds at least one).
+        int segmentCount = Integer.highestOneBit(Math.min(capacity, concurrencyLevel));
+        this.segments = newSegmentArray(segmentCount);
+        this.segmentMask = segmentCount - 1;
+
+        int baseCapacity = capacity / segmentCount;
+        int remainder = capacity % segmentCount;
+        for(int i = 0; i < segmentCount; i++){
+            segments[i] = new LRUCache<>(baseCapacity + (i < remainder ? 1 : 0));
+        }
+    }
+
+    public Node<K,V> getKey(K key){
+        return segmentFor(key).getKey(key);
+    }
+
+    public void putKey(K key, V value){
+        segmentFor(key).putKey(key, value);
+    }
+
+    // Groups the keys by segment so each segment's lock is taken once per batch.
+    public Map<K,V> getAll(Collection<? extends K> keys){
+        List<K>[] bySegment = partition(keys);
+        Map<K,V> result = new HashMap<>((int) (keys.size() / 0.75f) + 1);
+        for(int i = 0; i < segments.length; i++){
+            if(bySegment[i] != null){
+                result.putAll(segments[i].getAll(bySegment[i]));
+            }
+        }
+        return result;
+    }
+
+    // All misses, across every segment, go to batchLoader in one call.
+    public Map<K,V> getAll(Collection<? extends K> keys, Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> batchLoader){
+        Map<K,V> result = getAll(keys);
+        Set<K> misses = new HashSet<>();
+        for(K key : keys){
+            if(!result.containsKey(key)){
+                misses.add(key);
+            }
+        }
+        if(misses.isEmpty()){
+            return result; // sizes can't tell us this: keys may repeat
+        }
+        Map<? extends K, ? extends V> loaded;
+        long start = System.nanoTime();
+        try{
+            loaded = batchLoader.apply(misses);
+        }catch(RuntimeException | Error e){
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        statsCounter.recordLoadSuccess(System.nanoTime() - start);
+        putAll(loaded);
+        result.putAll(loaded);
+        return result;
+    }
+
+    public void putAll(Map<? extends K, ? extends V> entries){
+        Map<K,V>[] bySegment = newMapArray(segments.length);
+        for(Map.Entry<? extends K, ? extends V> entry : entries.entrySet()){
+            int i = segmentIndex(entry.getKey());
+            if(bySegment[i] == null){
+                bySegment[i] = new HashMap<>();
+            }
+            bySegment[i].put(entry.getKey(), entry.getValue());
+        }
+        for(int i = 0; i < segments.length; i++){
+            if(bySegment[i] != null){
+                segments[i].putAll(bySegment[i]);
+            }
+        }
+    }
+
+    // One striped counter shared by every segment, so stats() is a single snapshot.
+    public SegmentedLRUCache<K,V> recordStats(){
+        statsCounter = new ConcurrentStatsCounter();
+        for(LRUCache<K,V> segment : segments){
+            segment.statsCounter(statsCounter);
+        }
+        return this;
+    }
+
+    public CacheStats stats(){
+        return statsCounter.snapshot();
+    }
+
+    public int segmentCount(){
+        return segments.length;
+    }
+
+    private LRUCache<K,V> segmentFor(K key){
+        return segments[segmentIndex(key)];
+    }
+
+    private List<K>[] partition(Collection<? extends K> keys){
+        List<K>[] bySegment = newListArray(segments.length);
+        for(K key : keys){
+            int i = segmentIndex(key);
+            if(bySegment[i] == null){
+                bySegment[i] = new ArrayList<>();
+            }
+            bySegment[i].add(key);
+        }
+        return bySegment;
+    }
+
+    private int segmentIndex(K key){
+        // Spread the high bits down so keys with poor low-bit entropy
+        // (e.g. small sequential Integers) still land on every segment.
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+        return h & segmentMask;
+    }
+
+    // Generic arrays can't be created directly; these are only ever filled with K/V-typed elements.
+    @SuppressWarnings("unchecked")
+    private static <K,V> LRUCache<K,V>[] newSegmentArray(int length){
+        return (LRUCache<K,V>[]) new LRUCache<?,?>[length];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K,V> Map<K,V>[] newMapArray(int length){
+        return (Map<K,V>[]) new Map<?,?>[length];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> List<K>[] newListArray(int length){
+        return (List<K>[]) new List<?>[length];
+    }
+}
@@ -0,0 +1,173 @@
+package InMemoryCache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Memcached-style slab allocator over direct (off-heap) ByteBuffers.
+// Memory is reserved in fixed-size slabs; each slab is lent to one size class
+// (powers of two from 64 bytes up to the slab size) and carved into equal slots.
+// An allocation is addressed by a single long: slab index in the high 32 bits,
+// byte offset inside the slab in the low 32. Freed slots go on a per-class free
+// list, so steady-state allocate/free never touches the Java heap.
+// Once the budget is reserved, a slab whose slots are all free again is taken back
+// from its class and handed to whichever class needs a new slab, so one size class
+// cannot keep the whole budget after the workload's value sizes shift.
+// Not thread-safe: OffHeapLRUCache calls it under its own lock.
+class SlabAllocator{
+    static final long NO_SPACE = -1L;
+    private static final int MIN_SLOT_SHIFT = 6; // 64 bytes
+    private static final int LENGTH_HEADER = Integer.BYTES;
+    private static final int MAX_SLABS = 0xFFFF;
+
+    private final int slabSize;
+    private final int maxSlabs;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final IntStack[] freeSlots; // per size class, encoded as slab << 16 | slot
+    private final int[] currentSlab;    // per size class, slab still being carved, or -1
+    private final int[] nextSlot;       // per size class, next uncarved slot in currentSlab
+    private final int[] slabClass;      // per slab, the size class it is lent to
+    private final int[] liveSlots;      // per slab, allocated slots
+    private final boolean[] reclaimable; // per slab, already on emptySlabs
+    private final IntStack emptySlabs = new IntStack(); // slabs that dropped to no live slots
+
+    public SlabAllocator(long maxBytes, int slabSize){
+        // Free-list entries pack the slot index into 16 bits, which caps a slab at 64K minimum-size slots.
+        if(Integer.bitCount(slabSize) != 1 || slabSize < (1 << MIN_SLOT_SHIFT) || slabSize > (1 << (16 + MIN_SLOT_SHIFT))){
+            throw new IllegalArgumentException("slabSize must be a power of two between 64 bytes and 4 MiB");
+        }
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) Math.max(1, Math.min(MAX_SLABS, maxBytes / slabSize));
+        int classes = Integer.numberOfTrailingZeros(slabSize) - MIN_SLOT_SHIFT + 1;
+        this.freeSlots = new IntStack[classes];
+        this.currentSlab = new int[classes];
+        this.nextSlot = new int[classes];
+        this.slabClass = new int[maxSlabs];
+        this.liveSlots = new int[maxSlabs];
+        this.reclaimable = new boolean[maxSlabs];
+        for(int i = 0; i < classes; i++){
+            freeSlots[i] = new IntStack();
+        }
+        Arrays.fill(currentSlab, -1);
+    }
+
+    public int maxValueSize(){
+        return slabSize - LENGTH_HEADER;
+    }
+
+    // Copies value into a free slot; returns its address or NO_SPACE if the budget is used up.
+    public long allocate(byte[] value){
+        if(value.length > maxValueSize()){
+            throw new IllegalArgumentException("Value of " + value.length + " bytes exceeds slab size " + slabSize);
+        }
+        int sizeClass = sizeClass(value.length + LENGTH_HEADER);
+        int slot = freeSlots[sizeClass].isEmpty() ? carveSlot(sizeClass) : freeSlots[sizeClass].pop();
+        if(slot == -1){
+            return NO_SPACE;
+        }
+        int slab = slot >>> 16;
+        int offset = (slot & 0xFFFF) << (sizeClass + MIN_SLOT_SHIFT);
+        liveSlots[slab]++;
+        ByteBuffer buffer = slabs.get(slab);
+        buffer.putInt(offset, value.length);
+        buffer.put(offset + LENGTH_HEADER, value);
+        return ((long) slab << 32) | offset;
+    }
+
+    public byte[] read(long address){
+        ByteBuffer buffer = slabs.get((int) (address >>> 32));
+        int offset = (int) address;
+        byte[] value = new byte[buffer.getInt(offset)];
+        buffer.get(offset + LENGTH_HEADER, value);
+        return value;
+    }
+
+    public void free(long address){
+        int slab = (int) (address >>> 32);
+        int offset = (int) address;
+        int length = slabs.get(slab).getInt(offset);
+        int sizeClass = sizeClass(length + LENGTH_HEADER);
+        freeSlots[sizeClass].push(slab << 16 | (offset >>> (sizeClass + MIN_SLOT_SHIFT)));
+        if(--liveSlots[slab] == 0 && !reclaimable[slab]){
+            reclaimable[slab] = true;
+            emptySlabs.push(slab);
+        }
+    }
+
+    public long reservedBytes(){
+        return (long) slabs.size() * slabSize;
+    }
+
+    private int carveSlot(int sizeClass){
+        int slotsPerSlab = slabSize >>> (sizeClass + MIN_SLOT_SHIFT);
+        if(currentSlab[sizeClass] < 0 || nextSlot[sizeClass] == slotsPerSlab){
+            int slab = newSlab();
+            if(slab < 0){
+                return -1;
+            }
+            slabClass[slab] = sizeClass;
+            currentSlab[sizeClass] = slab;
+            nextSlot[sizeClass] = 0;
+        }
+        return currentSlab[sizeClass] << 16 | nextSlot[sizeClass]++;
+    }
+
+    // A fresh slab while the budget lasts, then one that has no live slots left; -1 if none.
+    private int newSlab(){
+        if(slabs.size() < maxSlabs){
+            slabs.add(ByteBuffer.allocateDirect(slabSize));
+            return slabs.size() - 1;
+        }
+        while(!emptySlabs.isEmpty()){
+            int slab = emptySlabs.pop();
+            reclaimable[slab] = false;
+            if(liveSlots[slab] == 0){ // not reused by its own class since it emptied
+                int owner = slabClass[slab];
+                freeSlots[owner].removeSlab(slab);
+                if(currentSlab[owner] == slab){
+                    currentSlab[owner] = -1;
+                }
+                return slab;
+            }
+        }
+        return -1;
+    }
+
+    private static int sizeClass(int bytes){
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(bytes, 1 << MIN_SLOT_SHIFT) - 1);
+        return shift - MIN_SLOT_SHIFT;
+    }
+
+    // Growable stack of ints, so free lists do not box.
+    private static final class IntStack{
+        private int[] items = new int[16];
+        private int size;
+
+        boolean isEmpty(){
+            return size == 0;
+        }
+
+        void push(int item){
+            if(size == items.length){
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        int pop(){
+            return items[--size];
+        }
+
+        // Drops every slot of the given slab (entries are slab << 16 | slot).
+        void removeSlab(int slab){
+            int kept = 0;
+            for(int i = 0; i < size; i++){
+                if(items[i] >>> 16 != slab){
+                    items[kept++] = items[i];
+                }
+            }
+            size = kept;
+        }
+    }
+}
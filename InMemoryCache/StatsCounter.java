@@ -0,0 +1,110 @@
+package InMemoryCache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Point-in-time view of a cache's counters, safe to hand to a metrics scraper.
+record CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+                  long totalLoadTimeNanos, long evictionCount){
+
+    public double hitRate(){
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public double averageLoadPenaltyNanos(){
+        long loads = loadSuccessCount + loadFailureCount;
+        return loads == 0 ? 0.0 : (double) totalLoadTimeNanos / loads;
+    }
+}
+
+// Sink for cache events. Called on the hot path, so implementations must be cheap.
+interface StatsCounter{
+    void recordHits(int count);
+
+    void recordMisses(int count);
+
+    void recordLoadSuccess(long loadTimeNanos);
+
+    void recordLoadFailure(long loadTimeNanos);
+
+    void recordEviction();
+
+    CacheStats snapshot();
+}
+
+// LongAdder stripes its count across cells under contention, so threads recording
+// hits do not fight over one cache line the way an AtomicLong would.
+class ConcurrentStatsCounter implements StatsCounter{
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    @Override
+    public void recordHits(int count){
+        hitCount.add(count);
+    }
+
+    @Override
+    public void recordMisses(int count){
+        missCount.add(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTimeNanos){
+        loadSuccessCount.increment();
+        totalLoadTime.add(loadTimeNanos);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTimeNanos){
+        loadFailureCount.increment();
+        totalLoadTime.add(loadTimeNanos);
+    }
+
+    @Override
+    public void recordEviction(){
+        evictionCount.increment();
+    }
+
+    @Override
+    public CacheStats snapshot(){
+        return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(),
+            loadFailureCount.sum(), totalLoadTime.sum(), evictionCount.sum());
+    }
+}
+
+// Default when stats are off. Every method is an empty body on a singleton, so the
+// JIT inlines the calls away entirely.
+enum DisabledStatsCounter implements StatsCounter{
+    INSTANCE;
+
+    private static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, 0);
+
+    @Override
+    public void recordHits(int count){
+    }
+
+    @Override
+    public void recordMisses(int count){
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTimeNanos){
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTimeNanos){
+    }
+
+    @Override
+    public void recordEviction(){
+    }
+
+    @Override
+    public CacheStats snapshot(){
+        return EMPTY;
+    }
+}
@@ -0,0 +1,138 @@
+package InMemoryCache;
+
+import java.util.function.Consumer;
+
+// Node used by LRUCache when expiry is enabled. The timer links are separate from
+// prev/next because the node sits in an EvictionPolicy list and a wheel bucket at once.
+class TimedNode<K,V> extends Node<K,V>{
+    long writeTime;
+    long expiresAt;
+    TimedNode<K,V> prevInTimer;
+    TimedNode<K,V> nextInTimer;
+
+    public TimedNode(){
+    }
+
+    public TimedNode(K key, V value, long writeTime){
+        super(key, value);
+        this.writeTime = writeTime;
+    }
+}
+
+// Hierarchical timing wheel (Varghese & Lauck; the layout Caffeine uses). Each level
+// is a ring of buckets covering a power-of-two span of nanoseconds:
+//   level 0: 64 buckets of ~1.07s, level 1: 64 x ~1.14m, level 2: 32 x ~1.22h,
+//   level 3: 4 x ~0.8d, level 4: one overflow bucket.
+// schedule/deschedule are O(1). advance() only visits the buckets whose span has
+// elapsed since the last call; entries not due yet cascade down to a finer level.
+// Callers must provide their own synchronization (LRUCache holds its monitor).
+class TimerWheel<K,V>{
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+        1L << 30, // 1.07s
+        1L << 36, // 1.14m
+        1L << 42, // 1.22h
+        1L << 46, // 0.81d
+        1L << 50, // 13.0d
+        1L << 50,
+    };
+    private static final int[] SHIFT = {30, 36, 42, 46, 50};
+
+    private final TimedNode<K,V>[][] wheel;
+    private long nanos;
+
+    public TimerWheel(long now){
+        this.nanos = now;
+        this.wheel = newWheel();
+        for(int level = 0; level < BUCKETS.length; level++){
+            for(int bucket = 0; bucket < BUCKETS[level]; bucket++){
+                TimedNode<K,V> sentinel = new TimedNode<>(); //dummy head of the bucket
+                sentinel.prevInTimer = sentinel;
+                sentinel.nextInTimer = sentinel;
+                wheel[level][bucket] = sentinel;
+            }
+        }
+    }
+
+    public void schedule(TimedNode<K,V> node){
+        TimedNode<K,V> sentinel = findBucket(node.expiresAt);
+        node.nextInTimer = sentinel;
+        node.prevInTimer = sentinel.prevInTimer;
+        sentinel.prevInTimer.nextInTimer = node;
+        sentinel.prevInTimer = node;
+    }
+
+    public void reschedule(TimedNode<K,V> node){
+        deschedule(node);
+        schedule(node);
+    }
+
+    public void deschedule(TimedNode<K,V> node){
+        if(node.nextInTimer == null){
+            return; // not scheduled
+        }
+        node.prevInTimer.nextInTimer = node.nextInTimer;
+        node.nextInTimer.prevInTimer = node.prevInTimer;
+        node.prevInTimer = null;
+        node.nextInTimer = null;
+    }
+
+    // Moves the wheel to currentTime, handing every entry that is now due to the expirer.
+    public void advance(long currentTime, Consumer<TimedNode<K,V>> expirer){
+        long previousTime = nanos;
+        nanos = currentTime;
+        for(int level = 0; level < SHIFT.length; level++){
+            long previousTicks = previousTime >>> SHIFT[level];
+            long currentTicks = currentTime >>> SHIFT[level];
+            if(currentTicks - previousTicks <= 0){
+                break; // coarser levels cannot have ticked either
+            }
+            expire(level, previousTicks, currentTicks, expirer);
+        }
+    }
+
+    private void expire(int level, long previousTicks, long currentTicks, Consumer<TimedNode<K,V>> expirer){
+        TimedNode<K,V>[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + (currentTicks - previousTicks), buckets.length);
+        int start = (int) (previousTicks & mask);
+        for(int i = start; i < start + steps; i++){
+            TimedNode<K,V> sentinel = buckets[i & mask];
+            TimedNode<K,V> node = sentinel.nextInTimer;
+            sentinel.prevInTimer = sentinel;
+            sentinel.nextInTimer = sentinel;
+            while(node != sentinel){
+                TimedNode<K,V> next = node.nextInTimer;
+                node.prevInTimer = null;
+                node.nextInTimer = null;
+                if(node.expiresAt - nanos <= 0){
+                    expirer.accept(node);
+                }else{
+                    schedule(node); // cascade into a finer bucket
+                }
+                node = next;
+            }
+        }
+    }
+
+    private TimedNode<K,V> findBucket(long time){
+        long duration = time - nanos;
+        int last = wheel.length - 1;
+        for(int level = 0; level < last; level++){
+            if(duration < SPANS[level + 1]){
+                long ticks = time >>> SHIFT[level];
+                return wheel[level][(int) ticks & (BUCKETS[level] - 1)];
+            }
+        }
+        return wheel[last][0];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K,V> TimedNode<K,V>[][] newWheel(){
+        TimedNode<K,V>[][] wheel = (TimedNode<K,V>[][]) new TimedNode<?,?>[BUCKETS.length][];
+        for(int level = 0; level < BUCKETS.length; level++){
+            wheel[level] = (TimedNode<K,V>[]) new TimedNode<?,?>[BUCKETS[level]];
+        }
+        return wheel;
+    }
+}
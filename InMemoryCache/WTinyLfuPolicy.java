@@ -0,0 +1,193 @@
+package InMemoryCache;
+
+// Count-min sketch of 4-bit counters used to estimate how often a key was seen.
+// Each long holds sixteen counters; an item maps to four counters (one per hash
+// function) and its frequency is the minimum of them. Once the number of
+// increments reaches the sample size every counter is halved, so popularity
+// that is not sustained ages out.
+class FrequencySketch<K>{
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    public FrequencySketch(int capacity){
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = 10 * Math.max(1, capacity);
+    }
+
+    public int frequency(K key){
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for(int i = 0; i < 4; i++){
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    public void increment(K key){
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for(int i = 0; i < 4; i++){
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if(added && ++size == sampleSize){
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter){
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if((table[index] & mask) != mask){ // saturate at 15
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset(){
+        int odd = 0;
+        for(int i = 0; i < table.length; i++){
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int hash, int i){
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += (h >>> 32);
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x){
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
+
+// Window TinyLFU: new entries land in a small LRU window (1% of capacity). Entries
+// pushed out of the window join the probation segment of the main space, and to
+// stay there they must be estimated more popular (by the FrequencySketch) than the
+// probation victim they would displace. A second hit promotes an entry to the
+// protected segment (80% of main). One-hit wonders from a scan therefore churn
+// through the window and probation without displacing the hot set.
+class WTinyLfuPolicy<K,V> implements EvictionPolicy<K,V>{
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final DoublyLinkedList<K,V> window = new DoublyLinkedList<>();
+    private final DoublyLinkedList<K,V> probation = new DoublyLinkedList<>();
+    private final DoublyLinkedList<K,V> protectedQueue = new DoublyLinkedList<>();
+    private final FrequencySketch<K> sketch;
+    private final int maxWindow;
+    private final int maxProtected;
+    private int windowSize;
+    private int probationSize;
+    private int protectedSize;
+
+    public WTinyLfuPolicy(int capacity){
+        this.maxWindow = Math.max(1, capacity / 100);
+        this.maxProtected = (capacity - maxWindow) * 80 / 100;
+        this.sketch = new FrequencySketch<>(capacity);
+    }
+
+    @Override
+    public void recordAccess(Node<K,V> node){
+        sketch.increment(node.key);
+        switch(node.queueType){
+            case WINDOW -> {
+                window.removeNode(node);
+                window.addToFront(node);
+            }
+            case PROBATION -> {
+                probation.removeNode(node);
+                probationSize--;
+                node.queueType = PROTECTED;
+                protectedQueue.addToFront(node);
+                protectedSize++;
+                if(protectedSize > maxProtected){
+                    Node<K,V> demoted = protectedQueue.removeLast();
+                    protectedSize--;
+                    demoted.queueType = PROBATION;
+                    probation.addToFront(demoted);
+                    probationSize++;
+                }
+            }
+            default -> {
+                protectedQueue.removeNode(node);
+                protectedQueue.addToFront(node);
+            }
+        }
+    }
+
+    @Override
+    public void recordInsertion(Node<K,V> node){
+        sketch.increment(node.key);
+        node.queueType = WINDOW;
+        window.addToFront(node);
+        windowSize++;
+        if(windowSize > maxWindow){
+            // The window's LRU becomes the admission candidate at the head of probation.
+            Node<K,V> candidate = window.removeLast();
+            windowSize--;
+            candidate.queueType = PROBATION;
+            probation.addToFront(candidate);
+            probationSize++;
+        }
+    }
+
+    @Override
+    public void recordRemoval(Node<K,V> node){
+        switch(node.queueType){
+            case WINDOW -> {
+                window.removeNode(node);
+                windowSize--;
+            }
+            case PROBATION -> {
+                probation.removeNode(node);
+                probationSize--;
+            }
+            default -> {
+                protectedQueue.removeNode(node);
+                protectedSize--;
+            }
+        }
+    }
+
+    @Override
+    public Node<K,V> selectVictim(){
+        Node<K,V> evicted;
+        if(probationSize >= 2){
+            // Duel: the newest probation entry (usually just admitted from the window)
+            // against the oldest. Ties go against the candidate, so a scan cannot win.
+            Node<K,V> candidate = probation.peekFirst();
+            Node<K,V> victim = probation.peekLast();
+            evicted = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+        }else if(probationSize == 1){
+            evicted = probation.peekFirst();
+        }else if(protectedSize > 0){
+            evicted = protectedQueue.peekLast();
+        }else{
+            evicted = window.peekLast();
+        }
+        if(evicted != null){
+            recordRemoval(evicted);
+        }
+        return evicted;
+    }
+}
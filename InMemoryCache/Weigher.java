@@ -0,0 +1,9 @@
+package InMemoryCache;
+
+// Tells LRUCache how much an entry costs, e.g. its approximate size in bytes.
+// Called once when the entry is written; the result is stored on the Node, so it
+// must not depend on state that changes while the entry is cached.
+@FunctionalInterface
+interface Weigher<K,V>{
+    int weigh(K key, V value);
+}
@@ -0,0 +1,192 @@
+package ParkingLot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// ParkingLot without the per-type LinkedBlockingQueue: every (type, floor) gets an
+// AtomicLongArray bitmap with one bit per spot, 1 = occupied.
+//
+//   allocate: find the first 0 bit in a word (numberOfTrailingZeros(~word)) and CAS it to 1
+//   release:  CAS the bit back to 0
+//
+// Neither path takes a lock or allocates a queue node. Spots are addressed by an int
+// index into `spots`, and parkVehicle returns that index as the ticket the driver hands
+// back to unparkVehicle. Which vehicle holds a spot is kept per spot, not in a
+// vehicleId -> spot map, so parking and leaving stay allocation-free and lock-free; a
+// caller that must look vehicles up by id (or reject a car parked twice) keeps that
+// directory itself, as ShardedParkingLot does.
+class BitmapParkingLot {
+    private static final SpotGroup[] NO_GROUPS = new SpotGroup[0];
+
+    private final ParkingSpot[] spots;
+    private final AtomicReferenceArray<String> parkedVehicles; // vehicleId per spot, null when free
+    private final int[] groupOfSpot;
+    private final SpotGroup[] groups;
+    private final Map<ParkingSpotType, SpotGroup[]> groupsByType;
+
+    // The spots of one type on one floor: spots[base .. base + size).
+    private static final class SpotGroup {
+        final int base;
+        final AtomicLongArray occupied;
+
+        SpotGroup(int base, int size) {
+            this.base = base;
+            this.occupied = new AtomicLongArray((size + 63) >>> 6);
+            int tail = size & 63;
+            if (tail != 0) {
+                // bits past the last spot read as occupied so they are never handed out
+                occupied.set(occupied.length() - 1, -1L << tail);
+            }
+        }
+
+        // Starts the scan at a random word so concurrent parkers spread over the bitmap
+        // instead of all racing for the first free bit.
+        int allocate() {
+            int words = occupied.length();
+            int start = words == 1 ? 0 : ThreadLocalRandom.current().nextInt(words);
+            for (int i = 0; i < words; i++) {
+                int word = start + i < words ? start + i : start + i - words;
+                long bits = occupied.get(word);
+                while (bits != -1L) {
+                    long freeBit = Long.lowestOneBit(~bits);
+                    if (occupied.compareAndSet(word, bits, bits | freeBit)) {
+                        return base + (word << 6) + Long.numberOfTrailingZeros(freeBit);
+                    }
+                    bits = occupied.get(word); // lost the race: retry on the same word
+                }
+            }
+            return -1;
+        }
+
+        boolean release(int index) {
+            int offset = index - base;
+            int word = offset >>> 6;
+            long bit = 1L << offset;
+            while (true) {
+                long bits = occupied.get(word);
+                if ((bits & bit) == 0) {
+                    return false; // already free
+                }
+                if (occupied.compareAndSet(word, bits, bits & ~bit)) {
+                    return true;
+                }
+            }
+        }
+
+        int available() {
+            int free = 0;
+            for (int i = 0; i < occupied.length(); i++) {
+                free += Long.bitCount(~occupied.get(i));
+            }
+            return free;
+        }
+    }
+
+    // Takes the same map ParkingLot does; the collections are only read.
+    public BitmapParkingLot(Map<ParkingSpotType, ? extends Collection<ParkingSpot>> availableParkingSpots) {
+        Map<ParkingSpotType, Map<String, List<ParkingSpot>>> byTypeAndFloor = new LinkedHashMap<>();
+        int total = 0;
+        for (Collection<ParkingSpot> typeSpots : availableParkingSpots.values()) {
+            for (ParkingSpot spot : typeSpots) {
+                byTypeAndFloor.computeIfAbsent(spot.type(), t -> new LinkedHashMap<>())
+                    .computeIfAbsent(spot.floor(), f -> new ArrayList<>())
+                    .add(spot);
+                total++;
+            }
+        }
+        this.spots = new ParkingSpot[total];
+        this.parkedVehicles = new AtomicReferenceArray<>(total);
+        this.groupOfSpot = new int[total];
+        List<SpotGroup> allGroups = new ArrayList<>();
+        this.groupsByType = new EnumMap<>(ParkingSpotType.class);
+        int next = 0;
+        for (Map.Entry<ParkingSpotType, Map<String, List<ParkingSpot>>> typeEntry : byTypeAndFloor.entrySet()) {
+            List<SpotGroup> typeGroups = new ArrayList<>();
+            for (List<ParkingSpot> floorSpots : typeEntry.getValue().values()) {
+                SpotGroup group = new SpotGroup(next, floorSpots.size());
+                for (ParkingSpot spot : floorSpots) {
+                    spots[next] = spot;
+                    groupOfSpot[next] = allGroups.size();
+                    next++;
+                }
+                allGroups.add(group);
+                typeGroups.add(group);
+            }
+            groupsByType.put(typeEntry.getKey(), typeGroups.toArray(NO_GROUPS));
+        }
+        this.groups = allGroups.toArray(NO_GROUPS);
+    }
+
+    // Returns the index of a newly occupied spot, or -1 if none is free. Same fallback as
+    // DefaultParkingStrategy: a bike may take a car spot.
+    public int allocateSpot(ParkingSpotType type) {
+        int index = allocateFrom(groupsByType.get(type));
+        if (index < 0 && type == ParkingSpotType.BIKE) {
+            index = allocateFrom(groupsByType.get(ParkingSpotType.CAR));
+        }
+        return index;
+    }
+
+    public boolean releaseSpot(int index) {
+        return groups[groupOfSpot[index]].release(index);
+    }
+
+    public ParkingSpot getSpot(int index) {
+        return spots[index];
+    }
+
+    // Returns the ticket (spot index) the vehicle parked at, or -1 if no spot is free.
+    public int parkVehicle(ParkingSpotType type, String vehicleId) {
+        int index = allocateSpot(type);
+        if (index >= 0) {
+            parkedVehicles.set(index, vehicleId); // the bit is ours, so nobody else writes here
+        }
+        return index;
+    }
+
+    // Frees the spot behind `ticket`; false if it was not occupied. A ticket is good for
+    // one unpark: once the spot is reused it belongs to the next vehicle. The vehicle is
+    // cleared before the bit so the next parker's vehicleId cannot be overwritten.
+    public boolean unparkVehicle(int ticket) {
+        if (parkedVehicles.getAndSet(ticket, null) == null) {
+            return false; // Vehicle already left
+        }
+        return releaseSpot(ticket);
+    }
+
+    // The vehicle parked at `ticket`, or null if the spot is free.
+    public String vehicleAt(int ticket) {
+        return parkedVehicles.get(ticket);
+    }
+
+    // Free spots of this type; a snapshot, not linearizable with concurrent parks.
+    public int availableSpots(ParkingSpotType type) {
+        int free = 0;
+        for (SpotGroup group : groupsByType.getOrDefault(type, NO_GROUPS)) {
+            free += group.available();
+        }
+        return free;
+    }
+
+    // Floors are tried from a random one for the same reason words are.
+    private static int allocateFrom(SpotGroup[] typeGroups) {
+        if (typeGroups == null) {
+            return -1;
+        }
+        int start = typeGroups.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(typeGroups.length);
+        for (int i = 0; i < typeGroups.length; i++) {
+            int index = typeGroups[(start + i) % typeGroups.length].allocate();
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
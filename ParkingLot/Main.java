@@ -1,12 +1,22 @@
 package ParkingLot;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 record ParkingSpot(String id, String floor, ParkingSpotType type) {
 }
@@ -19,6 +29,11 @@ enum ParkingSpotType {
 interface  ParkingStrategy {
     // Strategy pattern can be implemented here for different parking strategies
     ParkingSpot allocateSpot(Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots, ParkingSpotType type);
+
+    // Strategies that care where the vehicle came in override this one.
+    default ParkingSpot allocateSpot(Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots, ParkingSpotType type, Entrance entrance) {
+        return allocateSpot(availableSpots, type);
+    }
 }
 
 class DefaultParkingStrategy implements ParkingStrategy {
@@ -37,23 +52,56 @@ class DefaultParkingStrategy implements ParkingStrategy {
 class ParkingLot {
     private Map<ParkingSpotType, BlockingQueue<ParkingSpot>> avalibleParkingSpots;
     private Map<String, ParkingSpot> occupiedParkingSpots;
+    private final OccupancyLog occupancyLog; // null when occupancy is not persisted
 
     public ParkingLot(Map<ParkingSpotType, BlockingQueue<ParkingSpot>> avalibleParkingSpots) {
         this.avalibleParkingSpots = avalibleParkingSpots;
         this.occupiedParkingSpots = new ConcurrentHashMap<>();
+        this.occupancyLog = null;
+    }
+
+    // Every park and unpark is written to the log. The lot starts from the occupancy the
+    // log recovered: those spots are taken out of the available queues.
+    public ParkingLot(Map<ParkingSpotType, BlockingQueue<ParkingSpot>> avalibleParkingSpots, OccupancyLog occupancyLog) {
+        this.avalibleParkingSpots = avalibleParkingSpots;
+        this.occupiedParkingSpots = occupancyLog.occupiedSpots();
+        this.occupancyLog = occupancyLog;
+        Set<ParkingSpot> occupied = new HashSet<>(occupiedParkingSpots.values());
+        for (BlockingQueue<ParkingSpot> spotsQueue : avalibleParkingSpots.values()) {
+            List<ParkingSpot> spots = new ArrayList<>(spotsQueue.size());
+            spotsQueue.drainTo(spots);
+            for (ParkingSpot spot : spots) {
+                if (!occupied.contains(spot)) {
+                    spotsQueue.offer(spot);
+                }
+            }
+        }
     }
 
     public boolean parkVehicle(ParkingSpotType type, String vehicleId,ParkingStrategy strategy) {
-         ParkingSpot spot = strategy.allocateSpot(avalibleParkingSpots, type);
+        return parkVehicle(type, vehicleId, null, strategy);
+    }
+
+    public boolean parkVehicle(ParkingSpotType type, String vehicleId, Entrance entrance, ParkingStrategy strategy) {
+         ParkingSpot spot = strategy.allocateSpot(avalibleParkingSpots, type, entrance);
          if (spot == null) {
              return false; // No available spot
          }
-        occupiedParkingSpots.put(vehicleId, spot);
+        if (occupancyLog != null) {
+            try {
+                occupancyLog.park(vehicleId, spot);
+            } catch (RuntimeException e) {
+                avalibleParkingSpots.get(spot.type()).offer(spot); // not recorded, so not taken
+                throw e;
+            }
+        } else {
+            occupiedParkingSpots.put(vehicleId, spot);
+        }
         return true;
     }
 
     public boolean unparkVehicle(String vehicleId) {
-        ParkingSpot spot = occupiedParkingSpots.remove(vehicleId);
+        ParkingSpot spot = occupancyLog != null ? occupancyLog.unpark(vehicleId) : occupiedParkingSpots.remove(vehicleId);
         if (spot == null) {
             return false; // Vehicle not found
         }
@@ -61,14 +109,45 @@ class ParkingLot {
         spotsQueue.offer(spot);
         return true;
     }
+
+    public ParkingSpot findVehicle(String vehicleId) {
+        return occupiedParkingSpots.get(vehicleId);
+    }
+
+    // Takes a spot out of the available queue without parking anything in it yet.
+    public ParkingSpot holdSpot(ParkingSpotType type, ParkingStrategy strategy) {
+        return strategy.allocateSpot(avalibleParkingSpots, type);
+    }
+
+    public boolean occupyHeldSpot(ParkingSpot spot, String vehicleId) {
+        if (occupancyLog != null) {
+            return occupancyLog.parkIfAbsent(vehicleId, spot);
+        }
+        return occupiedParkingSpots.putIfAbsent(vehicleId, spot) == null;
+    }
+
+    public void releaseHeldSpot(ParkingSpot spot) {
+        avalibleParkingSpots.get(spot.type()).offer(spot);
+    }
 }
 
 
 
 public class Main {
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws InterruptedException, IOException {
         testBikeFallbackStrategy();
         testConcurrency();
+        testBitmapParkingLot();
+        testBitmapConcurrency();
+        testNearestSpotStrategy();
+        testNearestSpotConcurrency();
+        testShardedFallback();
+        testShardedConcurrency();
+        testShardedDuplicateVehicle();
+        testSpotReservations();
+        testManyOutstandingHolds();
+        testOccupancyLogRecovery();
+        testOccupancyLogMillionSpots();
     }
     public static void testBikeFallbackStrategy() {
         Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots = new HashMap<>();
@@ -129,4 +208,528 @@ public class Main {
         System.out.println("Concurrency Test Passed!");
 
     }
+
+    public static void testBitmapParkingLot() {
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots = new HashMap<>();
+        availableSpots.put(ParkingSpotType.BIKE, new LinkedBlockingQueue<>());
+        availableSpots.get(ParkingSpotType.BIKE).offer(new ParkingSpot("B1", "F1", ParkingSpotType.BIKE));
+        availableSpots.put(ParkingSpotType.CAR, new LinkedBlockingQueue<>());
+        for (int i = 1; i <= 70; i++) { // more than one bitmap word on F1
+            availableSpots.get(ParkingSpotType.CAR).offer(new ParkingSpot("C" + i, i <= 65 ? "F1" : "F2", ParkingSpotType.CAR));
+        }
+
+        BitmapParkingLot parkingLot = new BitmapParkingLot(availableSpots);
+        int bike = parkingLot.parkVehicle(ParkingSpotType.BIKE, "B1");
+        assert parkingLot.getSpot(bike).type() == ParkingSpotType.BIKE && "B1".equals(parkingLot.vehicleAt(bike));
+        int fallback = parkingLot.parkVehicle(ParkingSpotType.BIKE, "B2");
+        assert parkingLot.getSpot(fallback).type() == ParkingSpotType.CAR : "Bike should fall back to a Car spot";
+        int[] tickets = new int[71];
+        for (int i = 2; i <= 70; i++) {
+            tickets[i] = parkingLot.parkVehicle(ParkingSpotType.CAR, "V" + i);
+            assert tickets[i] >= 0;
+        }
+        assert parkingLot.availableSpots(ParkingSpotType.CAR) == 0;
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V71") < 0 : "No spots should be available";
+
+        ParkingSpot freed = parkingLot.getSpot(tickets[40]);
+        assert parkingLot.unparkVehicle(tickets[40]);
+        assert !parkingLot.unparkVehicle(tickets[40]) : "Vehicle already left";
+        assert parkingLot.vehicleAt(tickets[40]) == null;
+        int reused = parkingLot.parkVehicle(ParkingSpotType.CAR, "V71");
+        assert parkingLot.getSpot(reused).equals(freed) : "The only free spot should be reused";
+        assert "V71".equals(parkingLot.vehicleAt(reused));
+
+        System.out.println("Bitmap Parking Lot Test Passed!");
+    }
+
+    // Threads keep parking and unparking over 10 floors; every spot must end up held by
+    // at most one vehicle and all of them must be free again at the end.
+    public static void testBitmapConcurrency() throws InterruptedException {
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots = new HashMap<>();
+        availableSpots.put(ParkingSpotType.CAR, new LinkedBlockingQueue<>());
+        for (int i = 1; i <= 1000; i++) {
+            availableSpots.get(ParkingSpotType.CAR).offer(new ParkingSpot("C" + i, "F" + (i % 10), ParkingSpotType.CAR));
+        }
+        BitmapParkingLot parkingLot = new BitmapParkingLot(availableSpots);
+
+        int threads = 16;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        ConcurrentHashMap<ParkingSpot, String> holders = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, Boolean> doubleBooked = new ConcurrentHashMap<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            executorService.submit(() -> {
+                try {
+                    int[] tickets = new int[100];
+                    for (int round = 0; round < 200; round++) {
+                        for (int v = 0; v < 100; v++) {
+                            String vehicleId = "T" + thread + "-V" + v;
+                            tickets[v] = parkingLot.parkVehicle(ParkingSpotType.CAR, vehicleId);
+                            if (tickets[v] >= 0 && holders.putIfAbsent(parkingLot.getSpot(tickets[v]), vehicleId) != null) {
+                                doubleBooked.put(vehicleId, true);
+                            }
+                        }
+                        for (int v = 0; v < 100; v++) {
+                            String vehicleId = "T" + thread + "-V" + v;
+                            if (tickets[v] >= 0) {
+                                if (!vehicleId.equals(parkingLot.vehicleAt(tickets[v]))) {
+                                    doubleBooked.put(vehicleId, true);
+                                }
+                                holders.remove(parkingLot.getSpot(tickets[v]), vehicleId);
+                                parkingLot.unparkVehicle(tickets[v]);
+                            }
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executorService.shutdown();
+
+        // 16 threads x 100 vehicles > 1000 spots, so some parks fail; none may double-book.
+        assert doubleBooked.isEmpty() : "Double-booked: " + doubleBooked.keySet();
+        assert holders.isEmpty();
+        assert parkingLot.availableSpots(ParkingSpotType.CAR) == 1000 : "All spots should be free again";
+
+        System.out.println("Bitmap Concurrency Test Passed!");
+    }
+
+    public static void testNearestSpotStrategy() {
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots = new HashMap<>();
+        availableSpots.put(ParkingSpotType.CAR, new LinkedBlockingQueue<>());
+        for (String floor : new String[] {"F1", "F2"}) {
+            for (int i = 0; i < 10; i++) {
+                availableSpots.get(ParkingSpotType.CAR).offer(new ParkingSpot(floor + "-C" + i, floor, ParkingSpotType.CAR));
+            }
+        }
+        ParkingLot parkingLot = new ParkingLot(availableSpots);
+        NearestSpotStrategy strategy = new NearestSpotStrategy(availableSpots, 100);
+        Entrance gate = new Entrance("F2", 5);
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V1", gate, strategy);
+        assert parkingLot.findVehicle("V1").id().equals("F2-C5") : "Should get the spot right at the entrance";
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V2", gate, strategy);
+        assert parkingLot.findVehicle("V2").id().equals("F2-C4") : "Ties go to the lower position";
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V3", gate, strategy);
+        assert parkingLot.findVehicle("V3").id().equals("F2-C6");
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V4", strategy);
+        assert parkingLot.findVehicle("V4").id().equals("F1-C0") : "No entrance means the start of the first floor";
+
+        // Fill the rest of F2; the next vehicle at the F2 gate goes one floor away.
+        for (int i = 5; i <= 11; i++) {
+            assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V" + i, gate, strategy);
+            assert parkingLot.findVehicle("V" + i).floor().equals("F2");
+        }
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V12", gate, strategy);
+        assert parkingLot.findVehicle("V12").id().equals("F1-C5") : "Nearest spot on the next floor";
+
+        // A freed spot goes back through the queue and is found again.
+        assert parkingLot.unparkVehicle("V1");
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V13", gate, strategy);
+        assert parkingLot.findVehicle("V13").id().equals("F2-C5");
+
+        System.out.println("Nearest Spot Strategy Test Passed!");
+    }
+
+    public static void testNearestSpotConcurrency() throws InterruptedException {
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots = new HashMap<>();
+        availableSpots.put(ParkingSpotType.CAR, new LinkedBlockingQueue<>());
+        for (int i = 1; i <= 100; i++) {
+            availableSpots.get(ParkingSpotType.CAR).offer(new ParkingSpot("C" + i, "F" + (i % 4), ParkingSpotType.CAR));
+        }
+        ParkingLot parkingLot = new ParkingLot(availableSpots);
+        ParkingStrategy strategy = new NearestSpotStrategy(availableSpots, 10);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(150);
+        CountDownLatch latch = new CountDownLatch(150);
+        ConcurrentHashMap<String, Boolean> results = new ConcurrentHashMap<>();
+        for (int i = 1; i <= 150; i++) {
+            final int vehicleId = i;
+            executorService.submit(() -> {
+                try {
+                    Entrance entrance = new Entrance("F" + (vehicleId % 4), vehicleId % 25);
+                    results.put("V" + vehicleId, parkingLot.parkVehicle(ParkingSpotType.CAR, "V" + vehicleId, entrance, strategy));
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executorService.shutdown();
+
+        long successCount = results.values().stream().filter(b -> b).count();
+        assert successCount == 100 : "Error: " + successCount + " cars parked (Expected 100)";
+
+        // As many spots as threads, each thread holding at most one: a park always has a free
+        // spot, even when the only free one is being drained from the queue by another thread.
+        int spots = 4;
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> churnSpots = carSpots(0, spots);
+        ParkingLot churnLot = new ParkingLot(churnSpots);
+        ParkingStrategy churnStrategy = new NearestSpotStrategy(churnSpots, 10);
+        ExecutorService churn = Executors.newFixedThreadPool(spots);
+        AtomicLong falseFull = new AtomicLong();
+        for (int t = 0; t < spots; t++) {
+            final String vehicleId = "churn-" + t;
+            churn.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    if (!churnLot.parkVehicle(ParkingSpotType.CAR, vehicleId, new Entrance("F1", i % spots), churnStrategy)) {
+                        falseFull.incrementAndGet();
+                        continue;
+                    }
+                    churnLot.unparkVehicle(vehicleId);
+                }
+            });
+        }
+        churn.shutdown();
+        churn.awaitTermination(60, TimeUnit.SECONDS);
+        assert falseFull.get() == 0 : falseFull.get() + " parks reported a full lot while a spot was free";
+
+        System.out.println("Nearest Spot Concurrency Test Passed!");
+    }
+
+    // One DefaultParkingStrategy per shard; it is stateless, but the lot wants one each.
+    private static List<ParkingStrategy> defaultStrategies(int shards) {
+        List<ParkingStrategy> strategies = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            strategies.add(new DefaultParkingStrategy());
+        }
+        return strategies;
+    }
+
+    // Lots of `spotsPerShard` car spots each, one ParkingLot per lot.
+    private static List<ParkingLot> carLots(int shards, int spotsPerShard) {
+        List<ParkingLot> lots = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            lots.add(new ParkingLot(carSpots(shard, spotsPerShard)));
+        }
+        return lots;
+    }
+
+    private static Map<ParkingSpotType, BlockingQueue<ParkingSpot>> carSpots(int lot, int spots) {
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots = new HashMap<>();
+        availableSpots.put(ParkingSpotType.CAR, new LinkedBlockingQueue<>());
+        for (int i = 1; i <= spots; i++) {
+            availableSpots.get(ParkingSpotType.CAR).offer(new ParkingSpot("L" + lot + "-C" + i, "F1", ParkingSpotType.CAR));
+        }
+        return availableSpots;
+    }
+
+    public static void testShardedFallback() {
+        ShardedParkingLot parkingLot = new ShardedParkingLot(carLots(5, 1), defaultStrategies(5), 1);
+
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V1", 2) == 2 : "Home shard has room";
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V2", 2) == 3 : "Next shard up is tried first";
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V3", 2) == 1;
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V4", 2) == -1 : "Shards 0 and 4 are out of reach";
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V1", 0) == -1 : "Vehicle is already parked";
+        assert parkingLot.findVehicle("V2").id().equals("L3-C1");
+
+        assert parkingLot.unparkVehicle("V2");
+        assert !parkingLot.unparkVehicle("V2") : "Vehicle already left";
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V4", 4) == 4;
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V5", 4) == 3 : "Freed spot in shard 3 is reused";
+
+        // Stateful strategies: each NearestSpotStrategy only knows its own lot's spots, so
+        // falling back into a neighbour must use the neighbour's strategy.
+        List<ParkingLot> lots = new ArrayList<>();
+        List<ParkingStrategy> nearest = new ArrayList<>();
+        for (int shard = 0; shard < 2; shard++) {
+            Map<ParkingSpotType, BlockingQueue<ParkingSpot>> spots = carSpots(shard, 1);
+            nearest.add(new NearestSpotStrategy(spots, 10));
+            lots.add(new ParkingLot(spots));
+        }
+        ShardedParkingLot nearestLot = new ShardedParkingLot(lots, nearest);
+        assert nearestLot.parkVehicle(ParkingSpotType.CAR, "N1", 0) == 0;
+        assert nearestLot.parkVehicle(ParkingSpotType.CAR, "N2", 0) == 1 : "Fallback parks with shard 1's own strategy";
+        assert nearestLot.findVehicle("N2").id().equals("L1-C1");
+        try {
+            new ShardedParkingLot(carLots(2, 1), defaultStrategies(1));
+            assert false : "A strategy is required for every shard";
+        } catch (IllegalArgumentException expected) {
+        }
+
+        System.out.println("Sharded Fallback Test Passed!");
+    }
+
+    // Test-concurrency style load at scale: 12,000 vehicles race for 10,000 spots in 100
+    // shards, with homes skewed so a quarter of the shards overflow into their neighbours.
+    public static void testShardedConcurrency() throws InterruptedException {
+        int shards = 100;
+        ShardedParkingLot parkingLot = new ShardedParkingLot(carLots(shards, 100), defaultStrategies(shards));
+
+        int vehicles = 12_000;
+        ExecutorService executorService = Executors.newFixedThreadPool(64);
+        CountDownLatch latch = new CountDownLatch(vehicles);
+        ConcurrentHashMap<String, Integer> results = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        for (int i = 1; i <= vehicles; i++) {
+            final int vehicleId = i;
+            executorService.submit(() -> {
+                try {
+                    int home = vehicleId % 4 == 0 ? vehicleId % (shards / 4) : vehicleId % shards;
+                    results.put("V" + vehicleId, parkingLot.parkVehicle(ParkingSpotType.CAR, "V" + vehicleId, home));
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executorService.shutdown();
+
+        long successCount = results.values().stream().filter(shard -> shard >= 0).count();
+        System.out.printf("Sharded: parked %d of %d vehicles in %d ms%n", successCount, vehicles, (System.nanoTime() - start) / 1_000_000);
+        assert successCount == 10_000 : "Error: " + successCount + " cars parked (Expected 10000)";
+        long distinctSpots = results.keySet().stream().map(parkingLot::findVehicle).filter(spot -> spot != null).distinct().count();
+        assert distinctSpots == 10_000 : "Two vehicles share a spot";
+
+        System.out.println("Sharded Concurrency Test Passed!");
+    }
+
+    // Threads race to park the same vehicle: exactly one wins, and no spot is left taken
+    // by the losers once that vehicle leaves.
+    public static void testShardedDuplicateVehicle() throws InterruptedException {
+        int shards = 8;
+        ShardedParkingLot parkingLot = new ShardedParkingLot(carLots(shards, 1), defaultStrategies(shards));
+        ExecutorService executorService = Executors.newFixedThreadPool(shards);
+        for (int round = 0; round < 500; round++) {
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(shards);
+            AtomicLong parked = new AtomicLong();
+            for (int t = 0; t < shards; t++) {
+                final int home = t;
+                executorService.submit(() -> {
+                    try {
+                        start.await();
+                        if (parkingLot.parkVehicle(ParkingSpotType.CAR, "dup", home) >= 0) {
+                            parked.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            done.await();
+            assert parked.get() == 1 : "Round " + round + ": the same vehicle parked " + parked.get() + " times";
+            assert parkingLot.unparkVehicle("dup");
+        }
+        executorService.shutdown();
+        for (int i = 0; i < shards; i++) {
+            assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V" + i, i) >= 0 : "A spot leaked to a losing duplicate";
+        }
+        System.out.println("Sharded Duplicate Vehicle Test Passed!");
+    }
+
+    public static void testSpotReservations() {
+        List<ParkingLot> lots = carLots(1, 3);
+        ParkingLot parkingLot = lots.get(0);
+        ParkingStrategy strategy = new DefaultParkingStrategy();
+        AtomicLong clock = new AtomicLong();
+        SpotReservationService reservations = new SpotReservationService(parkingLot, strategy, TimeUnit.SECONDS.toNanos(1), clock::get, false);
+
+        assert reservations.reserve(ParkingSpotType.CAR, "R1", 15, TimeUnit.MINUTES) != null;
+        assert reservations.reserve(ParkingSpotType.CAR, "R2", 15, TimeUnit.MINUTES) != null;
+        assert reservations.reserve(ParkingSpotType.CAR, "R3", 15, TimeUnit.MINUTES) != null;
+        assert reservations.reserve(ParkingSpotType.CAR, "R4", 15, TimeUnit.MINUTES) == null : "All spots are held";
+        assert !parkingLot.parkVehicle(ParkingSpotType.CAR, "V1", strategy) : "Held spots are not available";
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        reservations.expireHolds();
+        assert reservations.outstandingHolds() == 3 : "Nothing is due after 10 minutes";
+        assert reservations.claim("R1", "V1") : "Driver arrived in time";
+        assert parkingLot.findVehicle("V1") != null;
+        assert reservations.cancel("R2");
+        assert !reservations.claim("R2", "V2") : "Cancelled hold cannot be claimed";
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V2", strategy) : "Cancelled hold went back to the queue";
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5) + 1);
+        reservations.expireHolds();
+        assert reservations.outstandingHolds() == 0 : "R3 expired after 15 minutes";
+        assert !reservations.claim("R3", "V3") : "Expired hold cannot be claimed";
+        assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V3", strategy) : "Expired hold went back to the queue";
+        assert parkingLot.unparkVehicle("V1") : "Claimed hold is an ordinary parked vehicle";
+
+        // Same on the real clock, with the expirer thread ticking every 10ms.
+        SpotReservationService ticking = new SpotReservationService(parkingLot, strategy, TimeUnit.MILLISECONDS.toNanos(10), System::nanoTime, true);
+        assert ticking.reserve(ParkingSpotType.CAR, "R5", 50, TimeUnit.MILLISECONDS) != null;
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ticking.shutdown();
+        assert ticking.outstandingHolds() == 0 : "Expirer thread should have released R5";
+
+        System.out.println("Spot Reservation Test Passed!");
+    }
+
+    // 100k holds spread over 15 minutes, expired by ticking the wheel once a second for 20
+    // minutes; every spot must come back and the wheel work stays in the milliseconds.
+    public static void testManyOutstandingHolds() {
+        int holds = 100_000;
+        ParkingLot parkingLot = carLots(1, holds).get(0);
+        ParkingStrategy strategy = new DefaultParkingStrategy();
+        AtomicLong clock = new AtomicLong();
+        SpotReservationService reservations = new SpotReservationService(parkingLot, strategy, TimeUnit.SECONDS.toNanos(1), clock::get, false);
+
+        for (int i = 0; i < holds; i++) {
+            long holdFor = TimeUnit.MINUTES.toNanos(15) * (i + 1) / holds;
+            reservations.reserve(ParkingSpotType.CAR, "R" + i, holdFor, TimeUnit.NANOSECONDS);
+        }
+        assert reservations.outstandingHolds() == holds;
+
+        long start = System.nanoTime();
+        for (int second = 1; second <= 20 * 60; second++) {
+            clock.set(TimeUnit.SECONDS.toNanos(second));
+            reservations.expireHolds();
+            if (second == 450) {
+                int outstanding = reservations.outstandingHolds();
+                assert outstanding > 49_000 && outstanding < 51_000 : "Half the holds are due at 7.5 minutes, " + outstanding + " left";
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Expired " + holds + " holds over 1200 ticks in " + elapsedMs + " ms");
+        assert reservations.outstandingHolds() == 0;
+        for (int i = 0; i < holds; i++) {
+            assert parkingLot.parkVehicle(ParkingSpotType.CAR, "V" + i, strategy) : "Every held spot should be free again";
+        }
+
+        System.out.println("Many Outstanding Holds Test Passed!");
+    }
+
+    // Parks and unparks through a logged lot, "restarts" by reopening the directory, and
+    // checks the new lot sees the same occupancy - including after a torn last record.
+    public static void testOccupancyLogRecovery() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("occupancy");
+        ParkingStrategy strategy = new DefaultParkingStrategy();
+
+        OccupancyLog log = OccupancyLog.open(directory, 256, true); // tiny segments force rotations
+        ParkingLot parkingLot = new ParkingLot(carSpots(0, 20), log);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        CountDownLatch latch = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            final int thread = t;
+            executorService.submit(() -> {
+                try {
+                    parkingLot.parkVehicle(ParkingSpotType.CAR, "V" + thread, strategy);
+                    parkingLot.parkVehicle(ParkingSpotType.CAR, "W" + thread, strategy);
+                    parkingLot.unparkVehicle("W" + thread);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executorService.shutdown();
+        ParkingSpot v3 = parkingLot.findVehicle("V3");
+        log.close();
+
+        OccupancyLog reopened = OccupancyLog.open(directory, 256, true);
+        ParkingLot restarted = new ParkingLot(carSpots(0, 20), reopened);
+        assert reopened.occupiedSpots().size() == 8 : "Recovered " + reopened.occupiedSpots().size() + " vehicles";
+        assert restarted.findVehicle("V3").equals(v3);
+        assert restarted.findVehicle("W3") == null : "W3 left before the restart";
+        for (int i = 0; i < 12; i++) {
+            assert restarted.parkVehicle(ParkingSpotType.CAR, "X" + i, strategy) : "12 spots are still free";
+        }
+        assert !restarted.parkVehicle(ParkingSpotType.CAR, "X12", strategy) : "Recovered spots must not be handed out again";
+        assert restarted.unparkVehicle("V3");
+        reopened.close();
+
+        // Simulate a crash in the middle of writing the last record: flip a byte in it.
+        Path lastLog;
+        try (Stream<Path> files = Files.list(directory)) {
+            lastLog = files.filter(f -> f.toString().endsWith(".log")).max(Path::compareTo).get();
+        }
+        byte[] bytes = Files.readAllBytes(lastLog);
+        int end = bytes.length;
+        while (bytes[end - 1] == 0) {
+            end--;
+        }
+        bytes[end - 1] ^= 0x5a;
+        Files.write(lastLog, bytes);
+        OccupancyLog afterCrash = OccupancyLog.open(directory, 256, true);
+        assert afterCrash.occupiedSpots().containsKey("V3") : "The torn unpark of V3 is ignored";
+        assert afterCrash.occupiedSpots().size() == 8 + 12;
+
+        // A park the log cannot record changes nothing and leaves the spot available.
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> spareSpots = carSpots(1, 1);
+        ParkingLot spare = new ParkingLot(spareSpots, afterCrash);
+        for (String vehicleId : new String[] {"x".repeat(300), "y".repeat(70_000)}) { // larger than a segment / than 65535 bytes
+            try {
+                spare.parkVehicle(ParkingSpotType.CAR, vehicleId, strategy);
+                assert false : "A record that cannot be logged is rejected";
+            } catch (IllegalArgumentException expected) {
+            }
+            assert spare.findVehicle(vehicleId) == null && spareSpots.get(ParkingSpotType.CAR).size() == 1 : "Failed park must not take the spot";
+        }
+        assert afterCrash.occupiedSpots().size() == 8 + 12;
+        afterCrash.close();
+        try {
+            spare.parkVehicle(ParkingSpotType.CAR, "Z1", strategy);
+            assert false : "A closed log rejects parks";
+        } catch (IllegalStateException expected) {
+        }
+        assert spare.findVehicle("Z1") == null && spareSpots.get(ParkingSpotType.CAR).size() == 1 : "Failed park must not take the spot";
+
+        // Older generations are gone, so losing the newest snapshot leaves logs with no
+        // base to replay them on: recovery must refuse rather than come back short.
+        Path lastSnapshot;
+        try (Stream<Path> files = Files.list(directory)) {
+            lastSnapshot = files.filter(f -> f.toString().endsWith(".snap")).max(Path::compareTo).get();
+        }
+        byte[] snapshotBytes = Files.readAllBytes(lastSnapshot);
+        snapshotBytes[snapshotBytes.length - 1] ^= 0x5a;
+        Files.write(lastSnapshot, snapshotBytes);
+        try {
+            OccupancyLog.open(directory, 256, true).close();
+            assert false : "A broken snapshot + log chain must fail recovery";
+        } catch (IOException expected) {
+        }
+        deleteDirectory(directory);
+
+        System.out.println("Occupancy Log Recovery Test Passed!");
+    }
+
+    // 1M occupied spots: recovery from snapshot + log tail must take seconds, not minutes.
+    public static void testOccupancyLogMillionSpots() throws IOException {
+        Path directory = Files.createTempDirectory("occupancy");
+        int spots = 1_000_000;
+        OccupancyLog log = OccupancyLog.open(directory, 16 << 20, false);
+        long start = System.nanoTime();
+        for (int i = 0; i < spots; i++) {
+            log.park("V" + i, new ParkingSpot("C" + i, "F" + (i % 50), ParkingSpotType.CAR));
+        }
+        for (int i = 0; i < spots; i += 4) {
+            log.unpark("V" + i);
+        }
+        log.sync();
+        long writeMs = (System.nanoTime() - start) / 1_000_000;
+        log.close();
+
+        start = System.nanoTime();
+        OccupancyLog recovered = OccupancyLog.open(directory, 16 << 20, false);
+        long recoverMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Logged 1.25M events in " + writeMs + " ms, recovered " + recovered.occupiedSpots().size() + " occupied spots in " + recoverMs + " ms");
+        assert recovered.occupiedSpots().size() == spots - spots / 4;
+        assert recovered.occupiedSpots().get("V1").id().equals("C1");
+        assert !recovered.occupiedSpots().containsKey("V4");
+        recovered.close();
+        deleteDirectory(directory);
+
+        System.out.println("Occupancy Log Million Spots Test Passed!");
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
 }
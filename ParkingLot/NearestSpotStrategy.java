@@ -0,0 +1,247 @@
+package ParkingLot;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+
+// Where a vehicle enters: a floor and a position along that floor's row of spots.
+record Entrance(String floor, int position) {
+}
+
+// Counts of free spots over a power-of-two segment tree, so the free spot closest to a
+// position is two O(log n) descents: the last free one at or before it and the first
+// free one at or after it.
+class FreeSpotTree {
+    private final int size;
+    private final int[] free; // free[1] is the root, leaves start at `size`
+
+    FreeSpotTree(int spots) {
+        this.size = Integer.highestOneBit(Math.max(1, spots - 1)) << 1;
+        this.free = new int[2 * size];
+    }
+
+    void setFree(int position, boolean isFree) {
+        int node = size + position;
+        int delta = (isFree ? 1 : 0) - free[node];
+        for (; delta != 0 && node > 0; node >>>= 1) {
+            free[node] += delta;
+        }
+    }
+
+    boolean isFree(int position) {
+        return free[size + position] == 1;
+    }
+
+    int freeCount() {
+        return free[1];
+    }
+
+    int firstFreeAtOrAfter(int position) {
+        return firstFree(1, 0, size - 1, position);
+    }
+
+    int lastFreeAtOrBefore(int position) {
+        return lastFree(1, 0, size - 1, position);
+    }
+
+    private int firstFree(int node, int lo, int hi, int from) {
+        if (hi < from || free[node] == 0) {
+            return -1;
+        }
+        if (lo == hi) {
+            return lo;
+        }
+        int mid = (lo + hi) >>> 1;
+        int left = firstFree(2 * node, lo, mid, from);
+        return left >= 0 ? left : firstFree(2 * node + 1, mid + 1, hi, from);
+    }
+
+    private int lastFree(int node, int lo, int hi, int to) {
+        if (lo > to || free[node] == 0) {
+            return -1;
+        }
+        if (lo == hi) {
+            return lo;
+        }
+        int mid = (lo + hi) >>> 1;
+        int right = lastFree(2 * node + 1, mid + 1, hi, to);
+        return right >= 0 ? right : lastFree(2 * node, lo, mid, to);
+    }
+}
+
+// Sends each vehicle to the free spot with the least travel from its entrance:
+//     cost = |floor difference| * floorCost + |position difference|
+// The layout is read once from the lot's spots: floors in the order they first appear
+// and, within a floor, positions in queue order.
+//
+// Free spots live in a FreeSpotTree per (type, floor), guarded by that floor's lock.
+// ParkingLot.unparkVehicle still offers freed spots back to the queue; they are drained
+// into the index on the next allocation, under a per-type drain lock. A park that finds
+// nothing takes that lock before answering "full", so it cannot miss a spot that another
+// thread has polled but not yet indexed. One instance serves one lot, and should not be
+// mixed with a queue-polling strategy on the same lot.
+class NearestSpotStrategy implements ParkingStrategy {
+    private final int floorCost;
+    private final Map<String, Integer> floorNumbers = new HashMap<>();
+    private final Map<ParkingSpotType, List<FloorIndex>> floorsByType = new EnumMap<>(ParkingSpotType.class);
+    private final Map<ParkingSpot, Integer> positions = new HashMap<>();
+    private final Map<ParkingSpot, FloorIndex> floorOfSpot = new HashMap<>();
+    private final Map<ParkingSpotType, Object> drainLocks = new EnumMap<>(ParkingSpotType.class);
+
+    private static final class FloorIndex {
+        final int floorNumber;
+        final ParkingSpot[] spots;
+        final FreeSpotTree tree;
+
+        FloorIndex(int floorNumber, List<ParkingSpot> spots) {
+            this.floorNumber = floorNumber;
+            this.spots = spots.toArray(new ParkingSpot[0]);
+            this.tree = new FreeSpotTree(spots.size());
+        }
+
+        synchronized void release(int position) {
+            tree.setFree(position, true);
+        }
+
+        synchronized boolean hasFree() {
+            return tree.freeCount() > 0;
+        }
+
+        // Nearest free position, or -1.
+        synchronized int nearest(int position) {
+            int at = Math.min(Math.max(position, 0), spots.length - 1);
+            int before = tree.lastFreeAtOrBefore(at);
+            int after = tree.firstFreeAtOrAfter(at);
+            if (before < 0 || after < 0) {
+                return Math.max(before, after);
+            }
+            return position - before <= after - position ? before : after;
+        }
+
+        // False if another thread took the spot since nearest() saw it.
+        synchronized boolean claim(int position) {
+            if (!tree.isFree(position)) {
+                return false;
+            }
+            tree.setFree(position, false);
+            return true;
+        }
+    }
+
+    public NearestSpotStrategy(Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots, int floorCost) {
+        this.floorCost = floorCost;
+        Map<ParkingSpotType, Map<String, List<ParkingSpot>>> layout = new EnumMap<>(ParkingSpotType.class);
+        for (BlockingQueue<ParkingSpot> queue : availableSpots.values()) {
+            for (ParkingSpot spot : queue) {
+                floorNumbers.putIfAbsent(spot.floor(), floorNumbers.size());
+                layout.computeIfAbsent(spot.type(), t -> new LinkedHashMap<>())
+                    .computeIfAbsent(spot.floor(), f -> new ArrayList<>())
+                    .add(spot);
+            }
+        }
+        for (Map.Entry<ParkingSpotType, Map<String, List<ParkingSpot>>> typeEntry : layout.entrySet()) {
+            List<FloorIndex> floors = new ArrayList<>();
+            for (Map.Entry<String, List<ParkingSpot>> floorEntry : typeEntry.getValue().entrySet()) {
+                FloorIndex floor = new FloorIndex(floorNumbers.get(floorEntry.getKey()), floorEntry.getValue());
+                for (int i = 0; i < floor.spots.length; i++) {
+                    positions.put(floor.spots[i], i);
+                    floorOfSpot.put(floor.spots[i], floor);
+                }
+                floors.add(floor);
+            }
+            floorsByType.put(typeEntry.getKey(), floors);
+            drainLocks.put(typeEntry.getKey(), new Object());
+        }
+    }
+
+    // Without an entrance, vehicles come in at the start of the first floor.
+    @Override
+    public ParkingSpot allocateSpot(Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots, ParkingSpotType type) {
+        return allocateSpot(availableSpots, type, null);
+    }
+
+    @Override
+    public ParkingSpot allocateSpot(Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots, ParkingSpotType type, Entrance entrance) {
+        ParkingSpot spot = allocateNearest(availableSpots, type, entrance);
+        if (spot == null && type == ParkingSpotType.BIKE) {
+            spot = allocateNearest(availableSpots, ParkingSpotType.CAR, entrance);
+        }
+        return spot;
+    }
+
+    private ParkingSpot allocateNearest(Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots, ParkingSpotType type, Entrance entrance) {
+        List<FloorIndex> floors = floorsByType.get(type);
+        if (floors == null) {
+            return null;
+        }
+        BlockingQueue<ParkingSpot> queue = availableSpots.get(type);
+        Object drainLock = drainLocks.get(type);
+        if (queue != null && !queue.isEmpty()) {
+            synchronized (drainLock) {
+                drain(queue);
+            }
+        }
+        int entranceFloor = entrance == null ? 0 : floorNumbers.getOrDefault(entrance.floor(), 0);
+        int entrancePosition = entrance == null ? 0 : entrance.position();
+        while (true) {
+            FloorIndex bestFloor = null;
+            int bestPosition = -1;
+            long bestCost = Long.MAX_VALUE;
+            for (FloorIndex floor : floors) {
+                long floorTravel = (long) Math.abs(floor.floorNumber - entranceFloor) * floorCost;
+                if (floorTravel >= bestCost) {
+                    continue;
+                }
+                int position = floor.nearest(entrancePosition);
+                if (position >= 0 && floorTravel + Math.abs(position - entrancePosition) < bestCost) {
+                    bestFloor = floor;
+                    bestPosition = position;
+                    bestCost = floorTravel + Math.abs(position - entrancePosition);
+                }
+            }
+            if (bestFloor == null) {
+                // With the drain lock held every free spot is either still queued or already indexed.
+                synchronized (drainLock) {
+                    drain(queue);
+                    if (!anyFree(floors)) {
+                        return null;
+                    }
+                }
+                continue; // a spot was freed while we searched
+            }
+            if (bestFloor.claim(bestPosition)) {
+                return bestFloor.spots[bestPosition];
+            }
+            // lost the spot to a concurrent park: search again
+        }
+    }
+
+    private static boolean anyFree(List<FloorIndex> floors) {
+        for (FloorIndex floor : floors) {
+            if (floor.hasFree()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Moves spots handed back by unparkVehicle from the queue into the index. Caller holds
+    // the type's drain lock.
+    private void drain(BlockingQueue<ParkingSpot> queue) {
+        if (queue == null) {
+            return;
+        }
+        ParkingSpot spot;
+        while ((spot = queue.poll()) != null) {
+            FloorIndex floor = floorOfSpot.get(spot);
+            if (floor == null) {
+                throw new IllegalStateException("Spot " + spot.id() + " is not part of this strategy's layout");
+            }
+            floor.release(positions.get(spot));
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package ParkingLot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Append-only log of park/unpark events for one ParkingLot, so occupancy survives a
+// restart without asking every gate controller.
+//
+// Files in `directory`, for generation g:
+//   occupancy-<g>.log   memory-mapped segment of records [int length][int crc32][payload]
+//   occupancy-<g>.snap  every occupied spot at the moment log g was started
+//
+// A record is appended under the log's monitor together with the map update it
+// describes, so log order is map-update order. The record goes in first: if it cannot
+// be written the map is left untouched. Vehicle ids, spot ids and floors must each fit
+// in 65535 bytes of UTF-8. A flusher thread forces the mapped pages
+// in batches (group commit): writers that arrive while a force is running all wait for
+// the next one instead of each issuing their own fsync.
+//
+// When a segment is full the log rotates to generation g+1, writes a snapshot of the
+// map as occupancy-<g+1>.snap and, only once that snapshot and its directory entry are
+// on disk, deletes the older files. The snapshot is taken after
+// the writer monitor is released, while parks and unparks go on into log g+1, so it may
+// already contain some of that log's updates. Replaying log g+1 over it is still exact:
+// records are applied in map-update order and each one sets or removes its key outright,
+// so the last record for a key wins whatever the snapshot held. Recovery loads the
+// newest complete snapshot and replays every log from that generation on; a torn or
+// corrupt record (bad length or CRC) ends the replay. A missing log in that chain, or
+// logs with no snapshot to start from, fail open() instead of recovering a lot with
+// vehicles silently missing. Generation 1 starts from an empty lot and needs none.
+class OccupancyLog implements Closeable {
+    private static final byte PARK = 1;
+    private static final byte UNPARK = 2;
+    private static final int SNAPSHOT_MAGIC = 0x4f43_5350;
+    private static final long FLUSH_INTERVAL_NANOS = 1_000_000; // flusher poll when idle
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean waitForSync;
+    private final Map<String, ParkingSpot> occupied;
+    private final Object flushMonitor = new Object();
+    private final Object snapshotMonitor = new Object();
+    private final Thread flusher;
+
+    // guarded by this
+    private MappedByteBuffer segment;
+    private long generation;
+    private long segmentBase;    // logical offset of the segment's first byte
+    private int forcedInSegment; // bytes of the segment already handed to force()
+
+    private volatile long written; // logical end of the last appended record
+    private volatile long durable; // guarded by flushMonitor for writes
+    private volatile boolean closed;
+
+    private long snapshotGeneration = -1; // guarded by snapshotMonitor: newest snapshot written
+
+    // Recovers the occupancy stored in `directory` (empty if there is none) and starts a
+    // new generation on top of it. With waitForSync, park and unpark return only once
+    // their record is on disk.
+    public static OccupancyLog open(Path directory, int segmentBytes, boolean waitForSync) throws IOException {
+        Files.createDirectories(directory);
+        TreeSet<Long> snapshots = new TreeSet<>();
+        TreeSet<Long> logs = new TreeSet<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("occupancy-") && name.endsWith(".snap")) {
+                    snapshots.add(Long.parseLong(name.substring(10, name.length() - 5)));
+                } else if (name.startsWith("occupancy-") && name.endsWith(".log")) {
+                    logs.add(Long.parseLong(name.substring(10, name.length() - 4)));
+                }
+            }
+        }
+        Map<String, ParkingSpot> occupied = new ConcurrentHashMap<>();
+        long base = 1;
+        for (long generation : snapshots.descendingSet()) {
+            if (readSnapshot(snapshotFile(directory, generation), generation, occupied)) {
+                base = generation;
+                break;
+            }
+            occupied.clear(); // incomplete snapshot: fall back to an older one
+        }
+        long expected = base;
+        for (long generation : logs.tailSet(base)) {
+            if (generation != expected) {
+                throw new IOException("cannot recover " + directory + ": log " + expected
+                    + " is missing between snapshot " + base + " and log " + logs.last());
+            }
+            replay(logFile(directory, generation), occupied);
+            expected++;
+        }
+        long last = Math.max(logs.isEmpty() ? 0 : logs.last(), snapshots.isEmpty() ? 0 : snapshots.last());
+        return new OccupancyLog(directory, segmentBytes, waitForSync, occupied, last + 1);
+    }
+
+    private OccupancyLog(Path directory, int segmentBytes, boolean waitForSync, Map<String, ParkingSpot> occupied, long generation) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.waitForSync = waitForSync;
+        this.occupied = occupied;
+        this.generation = generation;
+        this.segment = mapSegment(generation);
+        writeSnapshot(generation); // the recovered state becomes the new base
+        this.flusher = new Thread(this::runFlusher, "occupancy-log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // The live occupancy map; ParkingLot uses it as its occupiedParkingSpots and must
+    // only change it through park/parkIfAbsent/unpark.
+    public Map<String, ParkingSpot> occupiedSpots() {
+        return occupied;
+    }
+
+    public ParkingSpot park(String vehicleId, ParkingSpot spot) {
+        byte[] record = encodePark(vehicleId, spot);
+        ParkingSpot previous;
+        long rotatedTo;
+        synchronized (this) {
+            rotatedTo = append(record);
+            previous = occupied.put(vehicleId, spot);
+        }
+        afterAppend(rotatedTo);
+        return previous;
+    }
+
+    public boolean parkIfAbsent(String vehicleId, ParkingSpot spot) {
+        byte[] record = encodePark(vehicleId, spot);
+        long rotatedTo;
+        synchronized (this) {
+            if (occupied.containsKey(vehicleId)) {
+                return false;
+            }
+            rotatedTo = append(record);
+            occupied.put(vehicleId, spot);
+        }
+        afterAppend(rotatedTo);
+        return true;
+    }
+
+    public ParkingSpot unpark(String vehicleId) {
+        byte[] record = encodeUnpark(vehicleId);
+        ParkingSpot spot;
+        long rotatedTo;
+        synchronized (this) {
+            spot = occupied.get(vehicleId);
+            if (spot == null) {
+                return null; // nothing to log
+            }
+            rotatedTo = append(record);
+            occupied.remove(vehicleId);
+        }
+        afterAppend(rotatedTo);
+        return spot;
+    }
+
+    // Blocks until everything appended so far is on disk.
+    public void sync() {
+        long target = written;
+        if (durable >= target) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        synchronized (flushMonitor) {
+            while (durable < target && !closed) {
+                try {
+                    flushMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Starts a new generation and snapshot now instead of when the segment fills up.
+    public void checkpoint() {
+        long rotatedTo;
+        synchronized (this) {
+            rotatedTo = rotate();
+        }
+        afterAppend(rotatedTo);
+    }
+
+    @Override
+    public void close() {
+        sync();
+        closed = true;
+        LockSupport.unpark(flusher);
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+        }
+    }
+
+    // Caller holds the monitor. Returns the generation to snapshot if the log rotated, or
+    // -1; throws before writing anything if the record cannot be appended.
+    private long append(byte[] record) {
+        if (closed) {
+            throw new IllegalStateException("occupancy log is closed");
+        }
+        if (record.length > segmentBytes) {
+            throw new IllegalArgumentException("record larger than a segment");
+        }
+        long rotatedTo = -1;
+        if (record.length > segment.remaining()) {
+            rotatedTo = rotate();
+        }
+        segment.put(record);
+        written = segmentBase + segment.position();
+        return rotatedTo;
+    }
+
+    // Caller holds the monitor: finish the current segment and switch to a new one.
+    // Returns the new generation, whose snapshot the caller writes once it has let go of
+    // the monitor, so writers never wait for a copy of the whole map.
+    private long rotate() {
+        segment.force();
+        long end = segmentBase + segment.position();
+        synchronized (flushMonitor) {
+            durable = Math.max(durable, end);
+            flushMonitor.notifyAll();
+        }
+        try {
+            segment = mapSegment(generation + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // still on the old, full segment
+        }
+        generation++;
+        segmentBase = end;
+        forcedInSegment = 0;
+        return generation;
+    }
+
+    private void afterAppend(long rotatedTo) {
+        if (rotatedTo >= 0) {
+            writeSnapshot(rotatedTo);
+        }
+        if (waitForSync) {
+            sync();
+        }
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            if (written == durable) {
+                LockSupport.parkNanos(FLUSH_INTERVAL_NANOS);
+                continue;
+            }
+            MappedByteBuffer buffer;
+            int from;
+            int to;
+            long target;
+            synchronized (this) {
+                buffer = segment;
+                from = forcedInSegment;
+                to = segment.position();
+                target = written;
+                forcedInSegment = to;
+            }
+            buffer.force(from, to - from); // one fsync for every record in [from, to)
+            synchronized (flushMonitor) {
+                durable = Math.max(durable, target);
+                flushMonitor.notifyAll();
+            }
+        }
+    }
+
+    // Streams the live map (ConcurrentHashMap iteration is safe alongside updates) to a
+    // temporary file and moves it into place, so a crash leaves either the old set of
+    // files or a complete snapshot. The directory is synced before older generations are
+    // deleted, so they are never gone while the rename that replaces them could still be
+    // lost, and again after, so they stay deleted. A rotation
+    // that lost the race to a newer one has nothing left to add and is skipped.
+    private void writeSnapshot(long generation) {
+        synchronized (snapshotMonitor) {
+            if (generation <= snapshotGeneration) {
+                return;
+            }
+            Path target = snapshotFile(directory, generation);
+            Path temporary = directory.resolve(target.getFileName() + ".tmp");
+            try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+                CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(generation);
+                int count = 0;
+                for (Map.Entry<String, ParkingSpot> entry : occupied.entrySet()) {
+                    ParkingSpot spot = entry.getValue();
+                    out.writeBoolean(true); // another entry follows; the size may change mid-iteration
+                    writeString(out, entry.getKey());
+                    writeString(out, spot.id());
+                    writeString(out, spot.floor());
+                    out.writeByte(spot.type().ordinal());
+                    count++;
+                }
+                out.writeBoolean(false);
+                out.writeInt(count);
+                out.writeLong(checked.getChecksum().getValue());
+                out.flush();
+                file.getFD().sync();
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+                snapshotGeneration = generation;
+                deleteGenerationsBefore(generation);
+                syncDirectory();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void deleteGenerationsBefore(long generation) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                int dot = name.indexOf('.');
+                if (name.startsWith("occupancy-") && dot > 10 && Long.parseLong(name.substring(10, dot)) < generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // fsync on the directory itself makes renames and deletes in it durable.
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private MappedByteBuffer mapSegment(long generation) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile(directory, generation),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes); // stays valid after close
+        }
+    }
+
+    private static boolean readSnapshot(Path file, long generation, Map<String, ParkingSpot> occupied) {
+        ParkingSpotType[] types = ParkingSpotType.values();
+        try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readLong() != generation) {
+                return false;
+            }
+            int count = 0;
+            while (in.readBoolean()) {
+                String vehicleId = readString(in);
+                occupied.put(vehicleId, new ParkingSpot(readString(in), readString(in), types[in.readByte()]));
+                count++;
+            }
+            if (in.readInt() != count) {
+                return false;
+            }
+            long expected = checked.getChecksum().getValue();
+            return in.readLong() == expected;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void replay(Path file, Map<String, ParkingSpot> occupied) throws IOException {
+        ParkingSpotType[] types = ParkingSpotType.values();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            while (log.remaining() >= 8) {
+                int length = log.getInt();
+                int checksum = log.getInt();
+                if (length <= 0 || length > log.remaining()) {
+                    return; // end of the written part, or a torn header
+                }
+                ByteBuffer payload = log.slice(log.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return; // torn or corrupt record
+                }
+                log.position(log.position() + length);
+                String vehicleId = readString(payload.position(1));
+                if (payload.get(0) == PARK) {
+                    occupied.put(vehicleId, new ParkingSpot(readString(payload), readString(payload), types[payload.get()]));
+                } else {
+                    occupied.remove(vehicleId);
+                }
+            }
+        }
+    }
+
+    private static byte[] encodePark(String vehicleId, ParkingSpot spot) {
+        byte[] vehicle = utf8(vehicleId);
+        byte[] id = utf8(spot.id());
+        byte[] floor = utf8(spot.floor());
+        ByteBuffer payload = ByteBuffer.allocate(1 + 2 + vehicle.length + 2 + id.length + 2 + floor.length + 1);
+        payload.put(PARK);
+        putString(payload, vehicle);
+        putString(payload, id);
+        putString(payload, floor);
+        payload.put((byte) spot.type().ordinal());
+        return frame(payload.array());
+    }
+
+    private static byte[] encodeUnpark(String vehicleId) {
+        byte[] vehicle = utf8(vehicleId);
+        ByteBuffer payload = ByteBuffer.allocate(1 + 2 + vehicle.length);
+        payload.put(UNPARK);
+        putString(payload, vehicle);
+        return frame(payload.array());
+    }
+
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(8 + payload.length)
+            .putInt(payload.length)
+            .putInt((int) crc.getValue())
+            .put(payload)
+            .array();
+    }
+
+    // Strings are stored as an unsigned 16-bit length and their UTF-8 bytes, in records
+    // and snapshots alike.
+    private static byte[] utf8(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length > 0xffff) {
+            throw new IllegalArgumentException("string of " + utf8.length + " UTF-8 bytes is longer than 65535");
+        }
+        return utf8;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = utf8(value);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[in.readUnsignedShort()];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] utf8) {
+        buffer.putShort((short) utf8.length);
+        buffer.put(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] utf8 = new byte[buffer.getShort() & 0xffff];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static Path logFile(Path directory, long generation) {
+        return directory.resolve("occupancy-" + generation + ".log");
+    }
+
+    private static Path snapshotFile(Path directory, long generation) {
+        return directory.resolve("occupancy-" + generation + ".snap");
+    }
+}
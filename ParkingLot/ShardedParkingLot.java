@@ -0,0 +1,100 @@
+package ParkingLot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Front end over many independent ParkingLot shards (one per lot, or per floor). Each
+// shard keeps its own queues and occupied map, so parks at different lots never touch
+// the same structures. A vehicle goes to the shard of its entrance, and only when that
+// shard is full to the neighbouring shards, nearest first:
+//     home, home + 1, home - 1, home + 2, home - 2, ...
+// There is no global lock; the only shared structure is the vehicleId -> shard
+// directory, a ConcurrentHashMap, which unparkVehicle needs to find the right shard.
+// A park claims the vehicle's directory entry with putIfAbsent before taking a spot, so
+// two concurrent parks of the same vehicle cannot both end up holding one.
+//
+// Each shard parks with its own strategy (strategies.get(i) for shards.get(i)): a
+// stateful strategy such as NearestSpotStrategy is bound to the queues of one lot.
+class ShardedParkingLot {
+    private static final Object PARKING = new Object(); // claim marker, never a shard
+
+    private final ParkingLot[] shards;
+    private final ParkingStrategy[] strategies;
+    private final int maxFallbackDistance;
+    private final Map<String, Object> shardOfVehicle = new ConcurrentHashMap<>(); // a ParkingLot or PARKING
+
+    public ShardedParkingLot(List<ParkingLot> shards, List<? extends ParkingStrategy> strategies) {
+        this(shards, strategies, shards.size());
+    }
+
+    // maxFallbackDistance = 0 keeps vehicles in their home shard.
+    public ShardedParkingLot(List<ParkingLot> shards, List<? extends ParkingStrategy> strategies, int maxFallbackDistance) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("at least one shard is required");
+        }
+        if (strategies.size() != shards.size()) {
+            throw new IllegalArgumentException("need one strategy per shard: " + strategies.size() + " for " + shards.size() + " shards");
+        }
+        this.shards = shards.toArray(new ParkingLot[0]);
+        this.strategies = strategies.toArray(new ParkingStrategy[0]);
+        this.maxFallbackDistance = maxFallbackDistance;
+    }
+
+    // Returns the shard the vehicle was parked in, or -1 if none within reach had a spot.
+    public int parkVehicle(ParkingSpotType type, String vehicleId, int homeShard) {
+        if (homeShard < 0 || homeShard >= shards.length) {
+            throw new IllegalArgumentException("no shard " + homeShard);
+        }
+        if (shardOfVehicle.putIfAbsent(vehicleId, PARKING) != null) {
+            return -1; // already parked, or being parked by another thread
+        }
+        int parkedIn = -1;
+        try {
+            parkedIn = parkNearHome(type, vehicleId, homeShard);
+            return parkedIn;
+        } finally {
+            if (parkedIn < 0) {
+                shardOfVehicle.remove(vehicleId, PARKING);
+            }
+        }
+    }
+
+    private int parkNearHome(ParkingSpotType type, String vehicleId, int homeShard) {
+        for (int distance = 0; distance <= maxFallbackDistance && distance < shards.length; distance++) {
+            int above = homeShard + distance;
+            if (above < shards.length && tryPark(above, type, vehicleId)) {
+                return above;
+            }
+            int below = homeShard - distance;
+            if (distance > 0 && below >= 0 && tryPark(below, type, vehicleId)) {
+                return below;
+            }
+        }
+        return -1;
+    }
+
+    public boolean unparkVehicle(String vehicleId) {
+        if (!(shardOfVehicle.get(vehicleId) instanceof ParkingLot shard) || !shardOfVehicle.remove(vehicleId, shard)) {
+            return false; // not parked (yet)
+        }
+        return shard.unparkVehicle(vehicleId);
+    }
+
+    public ParkingSpot findVehicle(String vehicleId) {
+        return shardOfVehicle.get(vehicleId) instanceof ParkingLot shard ? shard.findVehicle(vehicleId) : null;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    private boolean tryPark(int index, ParkingSpotType type, String vehicleId) {
+        ParkingLot shard = shards[index];
+        if (!shard.parkVehicle(type, vehicleId, strategies[index])) {
+            return false;
+        }
+        shardOfVehicle.put(vehicleId, shard); // replaces our claim
+        return true;
+    }
+}
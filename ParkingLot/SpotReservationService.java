@@ -0,0 +1,224 @@
+package ParkingLot;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// A spot taken out of the available queue for a reservation until expiresAt.
+// Whoever moves state away from HELD first (claim, cancel or expiry) owns the spot.
+class Hold {
+    static final int HELD = 0;
+    static final int CLAIMED = 1;
+    static final int CANCELLED = 2;
+    static final int EXPIRED = 3;
+    private static final AtomicIntegerFieldUpdater<Hold> STATE = AtomicIntegerFieldUpdater.newUpdater(Hold.class, "state");
+
+    final String reservationId;
+    final ParkingSpot spot;
+    final long expiresAt;
+    private volatile int state = HELD;
+
+    // Owned by the wheel's thread.
+    long remainingRounds;
+    Hold nextInBucket;
+
+    Hold(String reservationId, ParkingSpot spot, long expiresAt) {
+        this.reservationId = reservationId;
+        this.spot = spot;
+        this.expiresAt = expiresAt;
+    }
+
+    boolean transition(int to) {
+        return STATE.compareAndSet(this, HELD, to);
+    }
+
+    boolean isHeld() {
+        return state == HELD;
+    }
+}
+
+// Hashed timing wheel (Varghese & Lauck, scheme 6; the layout of Netty's HashedWheelTimer):
+// one ring of `buckets` lists, each tick is tickNanos. A hold due in d ticks goes into
+// bucket (tick + d) & mask with d / buckets rounds still to wait, so scheduling is O(1)
+// and each tick only looks at one bucket instead of every outstanding hold.
+//
+// schedule() may be called from any thread: new holds go through a lock-free queue that
+// the advancing thread drains. Everything else belongs to that single thread. Claimed or
+// cancelled holds are not unlinked; they are dropped when their bucket comes round.
+class HoldTimerWheel {
+    private final long startNanos;
+    private final long tickNanos;
+    private final Hold[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Hold> pending = new ConcurrentLinkedQueue<>();
+    private long tick; // next tick to process
+
+    HoldTimerWheel(long startNanos, long tickNanos, int buckets) {
+        if (Integer.bitCount(buckets) != 1) {
+            throw new IllegalArgumentException("buckets must be a power of two");
+        }
+        this.startNanos = startNanos;
+        this.tickNanos = tickNanos;
+        this.buckets = new Hold[buckets];
+        this.mask = buckets - 1;
+    }
+
+    void schedule(Hold hold) {
+        pending.offer(hold);
+    }
+
+    // Processes every tick that has started by `now`, handing due holds to the expirer.
+    void advance(long now, Consumer<Hold> expirer) {
+        transferPending();
+        while (now - (startNanos + tick * tickNanos) >= 0) {
+            int index = (int) (tick & mask);
+            Hold hold = buckets[index];
+            buckets[index] = null;
+            while (hold != null) {
+                Hold next = hold.nextInBucket;
+                hold.nextInBucket = null;
+                if (!hold.isHeld()) {
+                    // claimed or cancelled since it was scheduled: just drop it
+                } else if (hold.remainingRounds > 0) {
+                    hold.remainingRounds--;
+                    link(index, hold);
+                } else {
+                    expirer.accept(hold);
+                }
+                hold = next;
+            }
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Hold hold;
+        while ((hold = pending.poll()) != null) {
+            long due = Math.max(tick, ceilDiv(hold.expiresAt - startNanos, tickNanos)); // overdue: next tick
+            hold.remainingRounds = (due - tick) / buckets.length;
+            link((int) (due & mask), hold);
+        }
+    }
+
+    private void link(int index, Hold hold) {
+        hold.nextInBucket = buckets[index];
+        buckets[index] = hold;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+}
+
+// Reservations on top of a ParkingLot: reserve() takes a spot out of the available
+// queue and holds it for a while; claim() turns the hold into a parked vehicle, and a
+// hold that is neither claimed nor cancelled in time goes back to the queue.
+//
+// All holds share one HoldTimerWheel and one daemon thread that wakes once per tick,
+// instead of a thread or ScheduledFuture per hold. With 1s ticks and 4096 buckets a
+// 15 minute hold is one O(1) insert and one visit when it is due.
+class SpotReservationService {
+    private final ParkingLot parkingLot;
+    private final ParkingStrategy strategy;
+    private final LongSupplier nanoClock;
+    private final HoldTimerWheel wheel;
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final Thread expirer;
+
+    public SpotReservationService(ParkingLot parkingLot, ParkingStrategy strategy) {
+        this(parkingLot, strategy, TimeUnit.SECONDS.toNanos(1), System::nanoTime, true);
+    }
+
+    // Without a thread the owner calls expireHolds() itself (tests drive a fake clock).
+    SpotReservationService(ParkingLot parkingLot, ParkingStrategy strategy, long tickNanos, LongSupplier nanoClock, boolean startExpirer) {
+        this.parkingLot = parkingLot;
+        this.strategy = strategy;
+        this.nanoClock = nanoClock;
+        this.wheel = new HoldTimerWheel(nanoClock.getAsLong(), tickNanos, 4096);
+        if (startExpirer) {
+            this.expirer = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(tickNanos);
+                    expireHolds();
+                }
+            }, "spot-hold-expirer");
+            this.expirer.setDaemon(true);
+            this.expirer.start();
+        } else {
+            this.expirer = null;
+        }
+    }
+
+    // Returns the held spot, or null if none is free or the reservation id is taken.
+    public ParkingSpot reserve(ParkingSpotType type, String reservationId, long holdFor, TimeUnit unit) {
+        if (holds.containsKey(reservationId)) {
+            return null;
+        }
+        ParkingSpot spot = parkingLot.holdSpot(type, strategy);
+        if (spot == null) {
+            return null; // No available spot
+        }
+        Hold hold = new Hold(reservationId, spot, nanoClock.getAsLong() + unit.toNanos(holdFor));
+        if (holds.putIfAbsent(reservationId, hold) != null) {
+            parkingLot.releaseHeldSpot(spot); // lost a race on the same reservation id
+            return null;
+        }
+        wheel.schedule(hold);
+        return spot;
+    }
+
+    // The driver arrived: park the vehicle in the held spot. False if the hold expired,
+    // was cancelled, or the vehicle is already parked elsewhere.
+    public boolean claim(String reservationId, String vehicleId) {
+        Hold hold = holds.get(reservationId);
+        if (hold == null || !hold.transition(Hold.CLAIMED)) {
+            return false;
+        }
+        holds.remove(reservationId, hold);
+        boolean parked = false;
+        try {
+            parked = parkingLot.occupyHeldSpot(hold.spot, vehicleId);
+        } finally {
+            if (!parked) {
+                parkingLot.releaseHeldSpot(hold.spot); // parked elsewhere, or the log refused the record
+            }
+        }
+        return parked;
+    }
+
+    public boolean cancel(String reservationId) {
+        Hold hold = holds.get(reservationId);
+        if (hold == null || !hold.transition(Hold.CANCELLED)) {
+            return false;
+        }
+        holds.remove(reservationId, hold);
+        parkingLot.releaseHeldSpot(hold.spot);
+        return true;
+    }
+
+    public int outstandingHolds() {
+        return holds.size();
+    }
+
+    // Releases every hold that is due. Called by the expirer thread each tick; must not
+    // be called concurrently with itself.
+    void expireHolds() {
+        wheel.advance(nanoClock.getAsLong(), hold -> {
+            if (hold.transition(Hold.EXPIRED)) {
+                holds.remove(hold.reservationId, hold);
+                parkingLot.releaseHeldSpot(hold.spot);
+            }
+        });
+    }
+
+    public void shutdown() {
+        if (expirer != null) {
+            expirer.interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package RateLimiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Computes the next concurrency limit from one completed request.
+// Called under the limiter's lock, so implementations may keep mutable state.
+interface LimitAlgorithm {
+    int initialLimit();
+
+    int update(int currentLimit, long rttNanos, int inFlight, boolean dropped);
+}
+
+// Additive increase, multiplicative decrease (as in TCP Reno): grow by one while
+// requests succeed quickly and the limit is actually being used, cut by backoffRatio
+// on a drop or a latency above the timeout.
+class AimdLimit implements LimitAlgorithm {
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long timeoutNanos;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long timeoutNanos) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public int initialLimit() {
+        return initialLimit;
+    }
+
+    @Override
+    public int update(int currentLimit, long rttNanos, int inFlight, boolean dropped) {
+        if (dropped || rttNanos > timeoutNanos) {
+            return Math.max(minLimit, (int) (currentLimit * backoffRatio));
+        }
+        if (inFlight * 2 >= currentLimit) { // do not grow a limit nobody is using
+            return Math.min(maxLimit, currentLimit + 1);
+        }
+        return currentLimit;
+    }
+}
+
+// TCP Vegas style: compares each RTT to the best RTT seen (the no-load latency) to
+// estimate how many requests are queueing downstream:
+//     queue = limit * (1 - rttNoLoad / rtt)
+// A small queue means there is headroom and the limit grows; a queue above beta
+// means latency is rising because of us, so it shrinks before anything times out.
+// Thresholds scale with log10(limit), as in Netflix's concurrency-limits.
+class VegasLimit implements LimitAlgorithm {
+    private final int initialLimit;
+    private final int maxLimit;
+    private final int probeInterval; // re-learn rttNoLoad every N updates, in case the baseline drifted up
+    private double estimatedLimit;
+    private long rttNoLoad;
+    private int updatesSinceProbe;
+
+    public VegasLimit(int initialLimit, int maxLimit) {
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.probeInterval = 1_000;
+        this.estimatedLimit = initialLimit;
+    }
+
+    @Override
+    public int initialLimit() {
+        return initialLimit;
+    }
+
+    @Override
+    public int update(int currentLimit, long rttNanos, int inFlight, boolean dropped) {
+        if (++updatesSinceProbe >= probeInterval) {
+            updatesSinceProbe = 0;
+            rttNoLoad = 0;
+        }
+        if (rttNoLoad == 0 || rttNanos < rttNoLoad) {
+            rttNoLoad = rttNanos;
+            return (int) estimatedLimit;
+        }
+        double log = Math.max(1, Math.log10(estimatedLimit));
+        if (dropped) {
+            estimatedLimit = Math.max(1, estimatedLimit - log);
+        } else if (inFlight * 2 >= estimatedLimit) {
+            double queue = Math.ceil(estimatedLimit * (1 - (double) rttNoLoad / rttNanos));
+            double alpha = 3 * log;
+            double beta = 6 * log;
+            if (queue <= log) {
+                estimatedLimit += beta;
+            } else if (queue < alpha) {
+                estimatedLimit += log;
+            } else if (queue > beta) {
+                estimatedLimit = Math.max(1, estimatedLimit - log);
+            }
+            estimatedLimit = Math.min(maxLimit, estimatedLimit);
+        }
+        return (int) estimatedLimit;
+    }
+}
+
+// Limits how many requests may be in flight at once, and adapts that limit to the
+// downstream's measured latency instead of relying on a fixed refillRate. Callers
+// report every admitted request back through onComplete.
+class AdaptiveConcurrencyLimiter implements RateLimiter {
+    private final LimitAlgorithm algorithm;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        this.limit = algorithm.initialLimit();
+    }
+
+    @Override
+    public boolean allowRequest() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Completion callback for an admitted request: its round-trip time, and whether it
+    // was dropped (timed out, rejected by the downstream, ...).
+    public void onComplete(long rttNanos, boolean dropped) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        synchronized (algorithm) {
+            limit = algorithm.update(limit, rttNanos, inFlightAtCompletion, dropped);
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
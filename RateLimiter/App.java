@@ -3,13 +3,51 @@ package RateLimiter;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 // 1. Define the contract
 interface RateLimiter {
     boolean allowRequest();
 }
 
-class TokenBucketRateLimiter implements RateLimiter {
+// Batch extension: take several permits with one synchronization instead of calling
+// allowRequest() once per item. Everything is built on tryReserve.
+interface PermitRateLimiter extends RateLimiter {
+    // Takes the permits if they will be available within maxWaitNanos, possibly going
+    // into debt that future refills repay. Returns how long the caller must wait before
+    // proceeding (0 = now), or -1 without taking anything if the wait would be longer.
+    // permits must be between 1 and the bucket's capacity.
+    long tryReserve(int permits, long maxWaitNanos);
+
+    default boolean tryAcquire(int permits) {
+        return tryReserve(permits, 0) == 0;
+    }
+
+    // Always succeeds; returns the nanoseconds to wait before using the permits.
+    default long reserve(int permits) {
+        return tryReserve(permits, Long.MAX_VALUE);
+    }
+
+    // Blocks until the permits are usable, unless that would take longer than timeout.
+    // Parks for exactly the computed wait instead of polling.
+    default boolean acquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        long waitNanos = tryReserve(permits, unit.toNanos(timeout));
+        if (waitNanos < 0) {
+            return false;
+        }
+        long deadline = System.nanoTime() + waitNanos;
+        for (long remaining = waitNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, remaining); // loop only to absorb spurious wakeups
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+}
+
+class TokenBucketRateLimiter implements PermitRateLimiter {
     private final int capacity;
     private final int refillRate; // tokens per second
     
@@ -34,6 +72,23 @@ class TokenBucketRateLimiter implements RateLimiter {
         return false;
     }
 
+    @Override
+    public synchronized long tryReserve(int permits, long maxWaitNanos) {
+        if (permits <= 0 || permits > capacity) {
+            throw new IllegalArgumentException("permits must be between 1 and " + capacity + ", got " + permits);
+        }
+        refill();
+        double deficit = permits - currentTokens;
+        long waitNanos = deficit <= 0 ? 0 : (long) Math.ceil(deficit * 1_000_000_000.0 / refillRate);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        // May go negative: refill() keeps adding to it, so the debt is repaid by
+        // exactly the time we told the caller to wait.
+        currentTokens -= permits;
+        return waitNanos;
+    }
+
     private void refill() {
         long now = System.currentTimeMillis();
         long elapsed = now - lastRefillTimestamp;
@@ -84,5 +139,255 @@ public class App {
         executor.shutdown();
         executor.awaitTermination(5, TimeUnit.SECONDS);
         System.out.println("Test Complete");
+
+        testLockFreeTokenBucket();
+        testKeyedRateLimiter();
+        testSlidingWindows();
+        testBatchPermits();
+        testDistributedLeasing();
+        testAdaptiveConcurrency();
+    }
+
+    public static void testAdaptiveConcurrency() {
+        // Simulated downstream: 10ms while at most 20 requests are in flight, then latency
+        // grows linearly with the queue. 200 clients keep offering load.
+        for (LimitAlgorithm algorithm : new LimitAlgorithm[] {
+                new AimdLimit(10, 1, 1_000, 0.9, 15_000_000L),
+                new VegasLimit(10, 1_000)}) {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(algorithm);
+            long limitSum = 0;
+            int rounds = 2_000;
+            for (int round = 0; round < rounds; round++) {
+                int admitted = 0;
+                while (admitted < 200 && limiter.allowRequest()) {
+                    admitted++;
+                }
+                long rtt = 10_000_000L * Math.max(20, admitted) / 20;
+                for (int i = 0; i < admitted; i++) {
+                    limiter.onComplete(rtt, false);
+                }
+                if (round >= rounds / 2) {
+                    limitSum += limiter.getLimit();
+                }
+            }
+            double averageLimit = (double) limitSum / (rounds / 2);
+            System.out.printf("%s settled at an average limit of %.1f (latency knee at 20)%n",
+                algorithm.getClass().getSimpleName(), averageLimit);
+            assert averageLimit > 5 && averageLimit < 60 : "Limit should settle near the latency knee";
+            assert limiter.getInFlight() == 0 : "Every admitted request was completed";
+        }
+        System.out.println("Adaptive Concurrency Test Passed!");
+    }
+
+    public static void testDistributedLeasing() throws InterruptedException {
+        // 4 nodes share a global limit of 100 burst + 100/s, allowing 20 tokens of error.
+        TokenStore store = new InMemoryTokenStore(100, 100);
+        int nodes = 4;
+        DistributedRateLimiter[] limiters = new DistributedRateLimiter[nodes];
+        for (int i = 0; i < nodes; i++) {
+            limiters[i] = new DistributedRateLimiter(store, "api:/search", 20, nodes);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        AtomicLong admitted = new AtomicLong();
+        long start = System.nanoTime();
+        for (int i = 0; i < nodes; i++) {
+            DistributedRateLimiter node = limiters[i];
+            executor.submit(() -> {
+                // 400 requests/s offered per node for 1 second.
+                for (int r = 0; r < 400; r++) {
+                    if (node.allowRequest()) {
+                        admitted.incrementAndGet();
+                    }
+                    LockSupport.parkNanos(2_500_000L);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long globalCeiling = 100 + (long) Math.ceil(elapsedSeconds * 100);
+        System.out.printf("Distributed: %d nodes admitted %d in %.2fs (global ceiling %d)%n",
+            nodes, admitted.get(), elapsedSeconds, globalCeiling);
+        assert admitted.get() <= globalCeiling : "Fleet exceeded the global limit";
+        assert admitted.get() >= globalCeiling - 4 * 20 - 20 : "Fleet should come within the error bound of the limit";
+
+        // The store grants everything available, not the largest power-of-two fraction.
+        TokenStore slowStore = new InMemoryTokenStore(100, 1);
+        assert slowStore.acquire("k", 128) == 100 : "128 requested with 100 available grants 100";
+        assert slowStore.acquire("k", 5) == 0 : "An empty bucket grants nothing";
+        assert slowStore.acquire("other", 30) == 30 : "A smaller request is granted in full";
+        System.out.println("Distributed Leasing Test Passed!");
+    }
+
+    public static void testBatchPermits() throws InterruptedException {
+        AtomicLong clock = new AtomicLong();
+        PermitRateLimiter lockFree = new LockFreeTokenBucketRateLimiter(10, 5, clock::get);
+        assert lockFree.tryAcquire(8) : "8 of 10 tokens available";
+        assert !lockFree.tryAcquire(3) : "Only 2 left";
+        assert lockFree.reserve(4) == 400_000_000L : "2 short at 5/s means a 400ms wait";
+        assert !lockFree.allowRequest() : "Bucket is in debt until the reservation is paid off";
+        clock.addAndGet(400_000_000L);
+        assert !lockFree.allowRequest() : "Debt just repaid, still empty";
+        clock.addAndGet(200_000_000L);
+        assert lockFree.allowRequest() : "One token refilled after the debt";
+
+        PermitRateLimiter bucket = new TokenBucketRateLimiter(10, 100);
+        assert bucket.tryAcquire(10) : "Full bucket covers a batch of 10";
+        assert !bucket.acquire(10, 10, TimeUnit.MILLISECONDS) : "10 more need ~100ms, more than the timeout";
+        long start = System.nanoTime();
+        assert bucket.acquire(5, 1, TimeUnit.SECONDS) : "5 permits arrive within ~50ms";
+        long waitedMs = (System.nanoTime() - start) / 1_000_000;
+        assert waitedMs >= 30 && waitedMs < 500 : "acquire should park about 50ms, parked " + waitedMs + "ms";
+        for (PermitRateLimiter limiter : new PermitRateLimiter[] {lockFree, bucket}) {
+            for (int permits : new int[] {0, -5, 11}) {
+                try {
+                    limiter.tryReserve(permits, Long.MAX_VALUE);
+                    assert false : permits + " permits should be rejected";
+                } catch (IllegalArgumentException expected) {
+                }
+            }
+        }
+        clock.addAndGet(10_000_000_000L);
+        assert lockFree.tryAcquire(10) && !lockFree.allowRequest() : "Rejected calls must not add burst credit";
+        System.out.println("Batch Permits Test Passed! (parked " + waitedMs + "ms)");
+    }
+
+    public static void testSlidingWindows() {
+        AtomicLong clock = new AtomicLong();
+        RateLimiter log = new SlidingWindowLogRateLimiter(5, 1_000, clock::get);
+        RateLimiter counter = new SlidingWindowCounterRateLimiter(5, 1_000, clock::get);
+        clock.set(900_000_000L); // burst at the end of the first fixed window
+        for (int i = 0; i < 5; i++) {
+            assert log.allowRequest() && counter.allowRequest() : "Burst within the limit is admitted";
+        }
+        clock.set(1_100_000_000L); // just after the fixed-window boundary
+        assert !log.allowRequest() : "Log: the burst is still inside the last second";
+        assert counter.allowRequest() : "Counter: estimate is 5 * 0.9 + 0 = 4.5, one more fits";
+        assert !counter.allowRequest() : "Counter: estimate is 4.5 + 1 = 5.5, over the limit";
+        clock.set(1_900_000_000L);
+        assert log.allowRequest() : "Log: the oldest request left the window";
+        assert counter.allowRequest() : "Counter: only 10% of the previous window still weighs in";
+
+        // 1e7 requests per hour: limit * window in nanos is 3.6e19, past Long.MAX_VALUE.
+        clock.set(0);
+        RateLimiter hourly = new SlidingWindowCounterRateLimiter(10_000_000, 3_600_000, clock::get);
+        assert hourly.allowRequest() : "A large limit over a long window must not overflow into rejection";
+        clock.set(3_600_000_000_000L * 3 / 2);
+        assert hourly.allowRequest() : "Half of one previous request weighs in, far below the limit";
+        try {
+            new SlidingWindowLogRateLimiter(5, Long.MAX_VALUE, clock::get);
+            assert false : "A window that overflows nanoseconds must be rejected";
+        } catch (IllegalArgumentException expected) {
+        }
+        System.out.println("Sliding Window Test Passed!");
+    }
+
+    public static void testKeyedRateLimiter() {
+        AtomicLong clock = new AtomicLong();
+        CompactKeyedTokenBucketRateLimiter limiter = new CompactKeyedTokenBucketRateLimiter(10, 1, 16, clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            assert limiter.allowRequest("tenant-A") : "tenant-A has its own burst of 10";
+        }
+        assert !limiter.allowRequest("tenant-A") : "tenant-A exhausted its bucket";
+        assert limiter.allowRequest("tenant-B") : "tenant-B is unaffected by tenant-A";
+
+        CompactKeyedTokenBucketRateLimiter thirds = new CompactKeyedTokenBucketRateLimiter(3, 3, 1, clock::get);
+        for (int i = 0; i < 3; i++) {
+            assert thirds.allowRequest("k") : "Full bucket of 3";
+        }
+        clock.addAndGet(999_999_999L);
+        assert thirds.allowRequest("k") && thirds.allowRequest("k") && !thirds.allowRequest("k") : "Third token is due at exactly 1s";
+        clock.addAndGet(1L);
+        assert thirds.allowRequest("k") : "3 tokens at 3/s refill in exactly one second";
+
+        int tenants = 1_000_000;
+        String[] keys = new String[tenants];
+        for (int i = 0; i < tenants; i++) {
+            keys[i] = "api-key-" + i;
+        }
+        long start = System.nanoTime();
+        for (String key : keys) {
+            limiter.allowRequest(key);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Keyed limiter: %d distinct keys in %dms (%.0f ns/request), tracking %d%n",
+            tenants, elapsed / 1_000_000, (double) elapsed / tenants, limiter.trackedKeys());
+
+        // 10s later every bucket has refilled; new traffic sweeps the idle ones out.
+        clock.addAndGet(10_000_000_000L);
+        for (int i = 0; i < tenants; i++) {
+            limiter.allowRequest("next-wave-" + i);
+        }
+        assert limiter.trackedKeys() < 1.5 * tenants : "Idle full buckets should have been evicted, tracking " + limiter.trackedKeys();
+        for (int i = 0; i < 10; i++) {
+            assert limiter.allowRequest("tenant-A") : "An evicted full bucket must behave like a full bucket";
+        }
+        assert !limiter.allowRequest("tenant-A");
+        System.out.println("Keyed Rate Limiter Test Passed! (tracking " + limiter.trackedKeys() + " keys)");
+    }
+
+    public static void testLockFreeTokenBucket() throws InterruptedException {
+        // Deterministic check of the bucket math with a fake clock.
+        AtomicLong clock = new AtomicLong(1_000_000_000L);
+        RateLimiter limiter = new LockFreeTokenBucketRateLimiter(10, 5, clock::get);
+        for (int i = 0; i < 10; i++) {
+            assert limiter.allowRequest() : "Full bucket should admit a burst of 10";
+        }
+        assert !limiter.allowRequest() : "11th request in the burst should be throttled";
+        clock.addAndGet(199_000_000L);
+        assert !limiter.allowRequest() : "No token before 200ms at 5 tokens/s";
+        clock.addAndGet(1_000_000L);
+        assert limiter.allowRequest() : "One token after 200ms";
+        clock.addAndGet(60_000_000_000L);
+        int burst = 0;
+        while (limiter.allowRequest()) {
+            burst++;
+        }
+        assert burst == 10 : "Refill must be capped at capacity, got " + burst;
+
+        // Rates that do not divide 1e9 refill at exactly the configured rate.
+        PermitRateLimiter thirds = new LockFreeTokenBucketRateLimiter(3, 3, clock::get);
+        assert thirds.tryAcquire(3) : "Full bucket of 3";
+        assert thirds.reserve(3) == 1_000_000_000L : "3 tokens at 3/s take exactly one second";
+        PermitRateLimiter fast = new LockFreeTokenBucketRateLimiter(1_000, 600_000_000, clock::get);
+        assert fast.tryAcquire(1_000) && !fast.allowRequest() : "Capacity of 1000";
+        int refilled = 0;
+        for (int micros = 0; micros < 1_000; micros++) {
+            clock.addAndGet(1_000L);
+            while (fast.allowRequest()) {
+                refilled++;
+            }
+        }
+        assert refilled == 600_000 : "600M/s over 1ms is 600k tokens, got " + refilled;
+        try {
+            new LockFreeTokenBucketRateLimiter(1, 1_500_000_000, clock::get);
+            assert false : "More than one token per nanosecond is rejected";
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // Under contention the CAS loop must never over-admit.
+        RateLimiter shared = new LockFreeTokenBucketRateLimiter(100, 1_000);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicLong admitted = new AtomicLong();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    if (shared.allowRequest()) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long ceiling = 100 + (long) Math.ceil(elapsedSeconds * 1_000);
+        System.out.printf("Lock-free bucket admitted %d of %d requests in %.0fms (ceiling %d)%n",
+            admitted.get(), threads * 100_000, elapsedSeconds * 1000, ceiling);
+        assert admitted.get() <= ceiling : "Admitted more than capacity + refill";
+        System.out.println("Lock-Free Token Bucket Test Passed!");
     }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package RateLimiter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The shared counter every node leases from (Redis + Lua, etcd, a DB row...).
+interface TokenStore {
+    // Atomically takes up to `requested` tokens from the global bucket `key` and
+    // returns how many were granted, between 0 and requested.
+    long acquire(String key, long requested);
+}
+
+// In-process TokenStore for tests and single-JVM setups: one global token bucket per key.
+class InMemoryTokenStore implements TokenStore {
+    private final int capacity;
+    private final int refillRate; // tokens per second
+    private final Map<String, LockFreeTokenBucketRateLimiter> buckets = new ConcurrentHashMap<>();
+
+    public InMemoryTokenStore(int capacity, int refillRate) {
+        this.capacity = capacity;
+        this.refillRate = refillRate;
+    }
+
+    @Override
+    public long acquire(String key, long requested) {
+        LockFreeTokenBucketRateLimiter bucket = buckets.computeIfAbsent(key, k -> new LockFreeTokenBucketRateLimiter(capacity, refillRate));
+        return bucket.acquireUpTo(requested); // as much as is available right now, in one CAS
+    }
+}
+
+// One node's view of a limit shared by the whole fleet.
+//
+// Instead of a remote call per request, the node leases a chunk of tokens from the
+// TokenStore and serves requests from that local lease with a CAS. When the lease runs
+// low a single background renewal tops it up. Tokens are only ever granted by the
+// store, so the fleet can never admit more than the global limit; the error is in
+// *when* tokens are used: at most nodes x leaseSize tokens sit unused in local leases,
+// and leases expire after leaseTtlNanos so old tokens cannot be spent much later.
+// Choose leaseSize = allowedErrorTokens / nodes.
+class DistributedRateLimiter implements RateLimiter {
+    private final TokenStore store;
+    private final String key;
+    private final long leaseSize;
+    private final long lowWatermark;
+    private final long leaseTtlNanos;
+    private final Executor renewalExecutor;
+
+    private final AtomicLong localTokens = new AtomicLong();
+    private final AtomicBoolean renewing = new AtomicBoolean();
+    private volatile long leaseExpiresAt;
+
+    public DistributedRateLimiter(TokenStore store, String key, long allowedErrorTokens, int nodes) {
+        this(store, key, Math.max(1, allowedErrorTokens / nodes), 1_000_000_000L, ForkJoinPool.commonPool());
+    }
+
+    DistributedRateLimiter(TokenStore store, String key, long leaseSize, long leaseTtlNanos, Executor renewalExecutor) {
+        this.store = store;
+        this.key = key;
+        this.leaseSize = leaseSize;
+        this.lowWatermark = leaseSize / 4;
+        this.leaseTtlNanos = leaseTtlNanos;
+        this.renewalExecutor = renewalExecutor;
+        renew(); // take the first lease up front so the node does not start out throttling
+    }
+
+    @Override
+    public boolean allowRequest() {
+        // Expired lease: drop it rather than over-admit late. Read the tokens before the
+        // expiry; renew() publishes the expiry first, so tokens it already added are seen
+        // with their new deadline, and tokens it adds later make the CAS fail.
+        long leased = localTokens.get();
+        if (leased > 0 && System.nanoTime() - leaseExpiresAt > 0) {
+            localTokens.compareAndSet(leased, 0);
+        }
+        while (true) {
+            long tokens = localTokens.get();
+            if (tokens <= 0) {
+                renewInBackground();
+                return false;
+            }
+            if (localTokens.compareAndSet(tokens, tokens - 1)) {
+                if (tokens - 1 <= lowWatermark) {
+                    renewInBackground();
+                }
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // Tokens currently leased to this node and not yet used.
+    public long leasedTokens() {
+        return localTokens.get();
+    }
+
+    private void renewInBackground() {
+        if (!renewing.compareAndSet(false, true)) {
+            return; // a renewal is already in flight
+        }
+        try {
+            renewalExecutor.execute(() -> {
+                try {
+                    renew();
+                } finally {
+                    renewing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            renewing.set(false);
+        }
+    }
+
+    private void renew() {
+        long wanted = leaseSize - localTokens.get();
+        if (wanted <= 0) {
+            return;
+        }
+        long granted = store.acquire(key, wanted);
+        if (granted > 0) {
+            leaseExpiresAt = System.nanoTime() + leaseTtlNanos; // before the tokens, see allowRequest
+            localTokens.addAndGet(granted);
+        }
+    }
+}
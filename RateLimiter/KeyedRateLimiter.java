@@ -0,0 +1,182 @@
+package RateLimiter;
+
+import java.util.function.LongSupplier;
+
+// A rate limiter with an independent bucket per key (API key, user id, tenant...).
+interface KeyedRateLimiter {
+    boolean allowRequest(String key);
+}
+
+// Token bucket per key, stored compactly for millions of keys.
+//
+// Each bucket is the single "issued" token index used by LockFreeTokenBucketRateLimiter,
+// counted on one RefillSchedule shared by all keys. A tracked key takes one slot of
+// open-addressing arrays (linear probing): a String reference (4 B with compressed oops)
+// plus a long, 12 B. The table is at most half full and doubles when it grows, so it
+// runs between 1/4 and 1/2 full: 24-48 bytes per key besides the key itself (up to 96
+// right after a sweep that freed some room but not enough to skip growing), and no
+// per-key objects.
+//
+// A bucket that has refilled to capacity is indistinguishable from a key that was never
+// seen, so it is dropped: when a segment fills up it first sweeps out full buckets and
+// only grows its arrays if that did not free enough room.
+//
+// Keys are split across lock-striped segments so unrelated keys do not contend.
+class CompactKeyedTokenBucketRateLimiter implements KeyedRateLimiter {
+    private final long capacity;
+    private final LongSupplier nanoClock;
+    private final RefillSchedule schedule;
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    public CompactKeyedTokenBucketRateLimiter(int capacity, int refillRate) {
+        this(capacity, refillRate, Runtime.getRuntime().availableProcessors() * 8, System::nanoTime);
+    }
+
+    CompactKeyedTokenBucketRateLimiter(int capacity, int refillRate, int concurrencyLevel, LongSupplier nanoClock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.nanoClock = nanoClock;
+        this.schedule = new RefillSchedule(nanoClock.getAsLong(), refillRate);
+        int segmentCount = Integer.highestOneBit(Math.max(1, concurrencyLevel) * 2 - 1);
+        this.segments = new Segment[segmentCount];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(16);
+        }
+    }
+
+    @Override
+    public boolean allowRequest(String key) {
+        int hash = spread(key.hashCode());
+        // High bits pick the segment, low bits the slot, so the two stay independent.
+        Segment segment = segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+        synchronized (segment) {
+            long refilled = schedule.tokensAt(nanoClock.getAsLong());
+            int slot = segment.find(key, hash);
+            long issued = slot >= 0 ? segment.issued[slot] : refilled - capacity; // unseen = full
+            long next = Math.max(issued, refilled - capacity) + 1;
+            if (next > refilled) {
+                return false;
+            }
+            if (slot >= 0) {
+                segment.issued[slot] = next;
+            } else {
+                segment.insert(key, hash, next, refilled);
+            }
+            return true;
+        }
+    }
+
+    // Number of keys currently holding a non-full bucket (or not yet swept).
+    public long trackedKeys() {
+        long total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                total += segment.size;
+            }
+        }
+        return total;
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    private final class Segment {
+        String[] keys;
+        long[] issued;
+        int mask;
+        int size;
+
+        Segment(int tableSize) {
+            allocate(tableSize);
+        }
+
+        private void allocate(int tableSize) {
+            keys = new String[tableSize];
+            issued = new long[tableSize];
+            mask = tableSize - 1;
+            size = 0;
+        }
+
+        int find(String key, int hash) {
+            int slot = hash & mask;
+            String candidate;
+            while ((candidate = keys[slot]) != null) {
+                if (candidate.equals(key)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        void insert(String key, int hash, long bucket, long refilled) {
+            if (size + 1 > keys.length >>> 1) {
+                evictFullBuckets(refilled);
+                if (size + 1 > keys.length >>> 2) {
+                    // Sweeping freed less than half: most keys are active, so grow.
+                    rehash(keys.length << 1);
+                }
+            }
+            put(key, hash, bucket);
+        }
+
+        private void put(String key, int hash, long bucket) {
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            issued[slot] = bucket;
+            size++;
+        }
+
+        private void evictFullBuckets(long refilled) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                // Backward-shift deletion can pull a later entry into this slot; re-check it.
+                while (keys[slot] != null && refilled - issued[slot] >= capacity) {
+                    remove(slot);
+                }
+            }
+        }
+
+        private void remove(int hole) {
+            size--;
+            int slot = hole;
+            while (true) {
+                slot = (slot + 1) & mask;
+                String key = keys[slot];
+                if (key == null) {
+                    keys[hole] = null;
+                    return;
+                }
+                int ideal = spread(key.hashCode()) & mask;
+                boolean movable = hole <= slot ? (ideal <= hole || ideal > slot) : (ideal <= hole && ideal > slot);
+                if (movable) {
+                    keys[hole] = key;
+                    issued[hole] = issued[slot];
+                    hole = slot;
+                }
+            }
+        }
+
+        private void rehash(int tableSize) {
+            String[] oldKeys = keys;
+            long[] oldIssued = issued;
+            allocate(tableSize);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    put(oldKeys[i], spread(oldKeys[i].hashCode()), oldIssued[i]);
+                }
+            }
+        }
+    }
+}
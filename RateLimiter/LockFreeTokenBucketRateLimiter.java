@@ -0,0 +1,126 @@
+package RateLimiter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// When each token of a bucket refills: token k (counting from an origin instant) becomes
+// available exactly ceil(k * 1e9 / refillRate) ns after the origin. Both directions are
+// integer math, so any rate up to one token per nanosecond is exact; a whole number of
+// nanoseconds per token would round 1e9 / refillRate and refill too fast.
+final class RefillSchedule {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long originNanos;
+    private final long refillRate;
+
+    RefillSchedule(long originNanos, int refillRate) {
+        if (refillRate <= 0 || refillRate > NANOS_PER_SECOND) {
+            throw new IllegalArgumentException("refillRate must be between 1 and 1e9 tokens per second");
+        }
+        this.originNanos = originNanos;
+        this.refillRate = refillRate;
+    }
+
+    // Tokens refilled between the origin and `nanos`: floor(elapsed * rate / 1e9), split
+    // into whole seconds and the rest so the product cannot overflow.
+    long tokensAt(long nanos) {
+        long elapsed = nanos - originNanos;
+        return Math.floorDiv(elapsed, NANOS_PER_SECOND) * refillRate
+            + Math.floorMod(elapsed, NANOS_PER_SECOND) * refillRate / NANOS_PER_SECOND;
+    }
+
+    // How long after `nanos` token `index` becomes available (<= 0 if it already is).
+    long nanosUntil(long index, long nanos) {
+        long offset = Math.floorDiv(index, refillRate) * NANOS_PER_SECOND
+            + (Math.floorMod(index, refillRate) * NANOS_PER_SECOND + refillRate - 1) / refillRate;
+        return originNanos + offset - nanos;
+    }
+}
+
+// Same admission rule as TokenBucketRateLimiter, without a lock or any double math.
+//
+// Instead of storing (tokens, lastRefillTimestamp) as two fields we count tokens on the
+// RefillSchedule and store a single index: the last token handed out. The bucket holds
+//
+//     tokens(now) = min(capacity, refilledBy(now) - issued)
+//
+// so the whole state lives in one AtomicLong and is updated with one CAS. Taking a
+// token just moves `issued` forward; the refill happens implicitly as the clock
+// advances. (This is the Generic Cell Rate Algorithm form of a token bucket.)
+class LockFreeTokenBucketRateLimiter implements PermitRateLimiter {
+    private final long capacity;
+    private final LongSupplier nanoClock;
+    private final RefillSchedule schedule;
+    private final AtomicLong issued;
+
+    public LockFreeTokenBucketRateLimiter(int capacity, int refillRate) {
+        this(capacity, refillRate, System::nanoTime);
+    }
+
+    LockFreeTokenBucketRateLimiter(int capacity, int refillRate, LongSupplier nanoClock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.nanoClock = nanoClock;
+        this.schedule = new RefillSchedule(nanoClock.getAsLong(), refillRate);
+        this.issued = new AtomicLong(-capacity); // starts full, like the original
+    }
+
+    @Override
+    public boolean allowRequest() {
+        while (true) {
+            long current = issued.get();
+            long refilled = schedule.tokensAt(nanoClock.getAsLong()); // System.nanoTime is monotonic, unlike currentTimeMillis
+            long next = Math.max(current, refilled - capacity) + 1;
+            if (next > refilled) {
+                return false; // fail fast, no write
+            }
+            if (issued.compareAndSet(current, next)) {
+                return true;
+            }
+            Thread.onSpinWait(); // lost the race: re-read and retry
+        }
+    }
+
+    // Takes min(maxPermits, tokens available now) in one CAS and returns how many; 0 when
+    // empty. Never waits and never takes more than a full bucket.
+    long acquireUpTo(long maxPermits) {
+        while (true) {
+            long current = issued.get();
+            long refilled = schedule.tokensAt(nanoClock.getAsLong());
+            long from = Math.max(current, refilled - capacity);
+            long granted = Math.min(maxPermits, refilled - from);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (issued.compareAndSet(current, from + granted)) {
+                return granted;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // A reservation pushes `issued` past what has refilled; until the clock catches up
+    // the bucket reads as empty, which is exactly the debt the caller was told to wait out.
+    @Override
+    public long tryReserve(int permits, long maxWaitNanos) {
+        if (permits <= 0 || permits > capacity) {
+            throw new IllegalArgumentException("permits must be between 1 and " + capacity + ", got " + permits);
+        }
+        while (true) {
+            long current = issued.get();
+            long now = nanoClock.getAsLong();
+            long refilled = schedule.tokensAt(now);
+            long next = Math.max(current, refilled - capacity) + permits;
+            long waitNanos = next <= refilled ? 0 : schedule.nanosUntil(next, now);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            if (issued.compareAndSet(current, next)) {
+                return waitNanos;
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
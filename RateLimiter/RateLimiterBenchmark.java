@@ -0,0 +1,100 @@
+package RateLimiter;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Rough, single-run comparisons between RateLimiter implementations.
+//   java -cp out RateLimiter.RateLimiterBenchmark
+public class RateLimiterBenchmark {
+    private static final int LIMIT = 100;     // requests per second
+    private static final long WINDOW_MS = 1_000;
+
+    public static void main(String[] args) {
+        compareAccuracy();
+        compareThroughput();
+    }
+
+    // Replays the same bursty arrival trace against each limiter with a fake clock and
+    // reports the worst number of admissions seen in any 1s sliding window.
+    public static void compareAccuracy() {
+        long[] arrivals = burstyTrace(60);
+        report("TokenBucket (lock-free)", arrivals, clock -> new LockFreeTokenBucketRateLimiter(LIMIT, LIMIT, clock));
+        report("SlidingWindowCounter", arrivals, clock -> new SlidingWindowCounterRateLimiter(LIMIT, WINDOW_MS, clock));
+        report("SlidingWindowLog", arrivals, clock -> new SlidingWindowLogRateLimiter(LIMIT, WINDOW_MS, clock));
+    }
+
+    // Single-threaded ns per allowRequest on the real clock, with the limiter mostly throttling.
+    public static void compareThroughput() {
+        int calls = 20_000_000;
+        RateLimiter[] limiters = {
+            new TokenBucketRateLimiter(LIMIT, LIMIT),
+            new LockFreeTokenBucketRateLimiter(LIMIT, LIMIT),
+            new SlidingWindowCounterRateLimiter(LIMIT, WINDOW_MS),
+            new SlidingWindowLogRateLimiter(LIMIT, WINDOW_MS),
+        };
+        for (int round = 0; round < 2; round++) { // first round is warm-up
+            for (RateLimiter limiter : limiters) {
+                long admitted = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < calls; i++) {
+                    if (limiter.allowRequest()) {
+                        admitted++;
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                if (round == 1) {
+                    System.out.printf("%-32s %5.1f ns/call (%d admitted)%n",
+                        limiter.getClass().getSimpleName(), (double) elapsed / calls, admitted);
+                }
+            }
+        }
+    }
+
+    // Quiet background traffic at half the limit plus, every few seconds, a spike of
+    // several hundred requests within ~50ms.
+    private static long[] burstyTrace(int seconds) {
+        Random random = new Random(5);
+        long[] arrivals = new long[seconds * (LIMIT / 2) + seconds * 200];
+        int n = 0;
+        for (int s = 0; s < seconds; s++) {
+            long base = s * 1_000_000_000L;
+            for (int i = 0; i < LIMIT / 2; i++) {
+                arrivals[n++] = base + (long) (random.nextDouble() * 1e9);
+            }
+            if (s % 3 == 0) {
+                long spike = base + (long) (random.nextDouble() * 9e8);
+                for (int i = 0; i < 600 && n < arrivals.length; i++) {
+                    arrivals[n++] = spike + (long) (random.nextDouble() * 5e7);
+                }
+            }
+        }
+        long[] trace = Arrays.copyOf(arrivals, n);
+        Arrays.sort(trace);
+        return trace;
+    }
+
+    private static void report(String name, long[] arrivals, Function<LongSupplier, RateLimiter> factory) {
+        AtomicLong clock = new AtomicLong(arrivals[0]);
+        RateLimiter limiter = factory.apply(clock::get);
+        long[] admitted = new long[arrivals.length];
+        int count = 0;
+        for (long arrival : arrivals) {
+            clock.set(arrival);
+            if (limiter.allowRequest()) {
+                admitted[count++] = arrival;
+            }
+        }
+        int worst = 0;
+        for (int lo = 0, hi = 0; hi < count; hi++) {
+            while (admitted[hi] - admitted[lo] >= WINDOW_MS * 1_000_000L) {
+                lo++;
+            }
+            worst = Math.max(worst, hi - lo + 1);
+        }
+        System.out.printf("%-24s admitted %5d of %5d, worst 1s window %4d (limit %d)%n",
+            name, count, arrivals.length, worst, LIMIT);
+    }
+}
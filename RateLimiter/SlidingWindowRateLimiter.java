@@ -0,0 +1,112 @@
+package RateLimiter;
+
+import java.util.function.LongSupplier;
+
+// Sliding window counter: keeps the count of the current fixed window and of the
+// previous one, and estimates the requests in the last `window` as
+//     previous * (portion of the previous window still inside the sliding window) + current.
+// Two longs of state, O(1) per request, no allocation. It smooths the fixed-window
+// boundary burst at the cost of assuming the previous window's requests were spread evenly.
+class SlidingWindowCounterRateLimiter implements RateLimiter {
+    private final long limit;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+
+    private long currentWindowStart;
+    private long currentCount;
+    private long previousCount;
+
+    public SlidingWindowCounterRateLimiter(int limit, long windowMillis) {
+        this(limit, windowMillis, System::nanoTime);
+    }
+
+    SlidingWindowCounterRateLimiter(int limit, long windowMillis, LongSupplier nanoClock) {
+        this.limit = limit;
+        this.windowNanos = windowNanos(limit, windowMillis);
+        this.nanoClock = nanoClock;
+        this.currentWindowStart = nanoClock.getAsLong();
+    }
+
+    @Override
+    public synchronized boolean allowRequest() {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - currentWindowStart;
+        if (elapsed >= windowNanos) {
+            // One window later the current count becomes the previous one; two or more
+            // windows later nothing recent is left.
+            previousCount = elapsed < 2 * windowNanos ? currentCount : 0;
+            currentCount = 0;
+            currentWindowStart = now - elapsed % windowNanos;
+            elapsed = now - currentWindowStart;
+        }
+        // previous * (window - elapsed) / window + current < limit, kept in integers as
+        // previous * (window - elapsed) < (limit - current) * window. A count times a window
+        // in nanos overflows a long (1e7 requests per hour is 3.6e19), so compare the full
+        // 128-bit products.
+        long remaining = limit - currentCount;
+        if (remaining > 0 && productLess(previousCount, windowNanos - elapsed, remaining, windowNanos)) {
+            currentCount++;
+            return true;
+        }
+        return false;
+    }
+
+    // a * b < c * d for non-negative arguments, without overflow.
+    private static boolean productLess(long a, long b, long c, long d) {
+        long high = Math.multiplyHigh(a, b);
+        long otherHigh = Math.multiplyHigh(c, d);
+        if (high != otherHigh) {
+            return high < otherHigh;
+        }
+        return Long.compareUnsigned(a * b, c * d) < 0;
+    }
+
+    // Shared by both sliding windows; the counter compares against two windows, so the
+    // doubled window must still fit in a long of nanoseconds (about 53 days).
+    static long windowNanos(int limit, long windowMillis) {
+        if (limit <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("limit and windowMillis must be positive");
+        }
+        if (windowMillis > Long.MAX_VALUE / 2_000_000L) {
+            throw new IllegalArgumentException("windowMillis too large: " + windowMillis);
+        }
+        return windowMillis * 1_000_000L;
+    }
+}
+
+// Sliding window log: remembers the timestamps of the last `limit` admitted requests in
+// a primitive ring buffer. A request is admitted only if the oldest of them has left the
+// window, so no window of that length ever holds more than `limit` admissions (exact,
+// unlike the counter). Memory is limit * 8 bytes; each request is O(1) and allocation-free.
+class SlidingWindowLogRateLimiter implements RateLimiter {
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private final long[] admittedAt; // ring buffer, oldest at head once full
+    private int head;
+    private int count;
+
+    public SlidingWindowLogRateLimiter(int limit, long windowMillis) {
+        this(limit, windowMillis, System::nanoTime);
+    }
+
+    SlidingWindowLogRateLimiter(int limit, long windowMillis, LongSupplier nanoClock) {
+        this.windowNanos = SlidingWindowCounterRateLimiter.windowNanos(limit, windowMillis);
+        this.nanoClock = nanoClock;
+        this.admittedAt = new long[limit];
+    }
+
+    @Override
+    public synchronized boolean allowRequest() {
+        long now = nanoClock.getAsLong();
+        if (count < admittedAt.length) {
+            admittedAt[(head + count++) % admittedAt.length] = now;
+            return true;
+        }
+        if (now - admittedAt[head] >= windowNanos) {
+            admittedAt[head] = now; // replace the oldest entry, which just left the window
+            head = (head + 1) % admittedAt.length;
+            return true;
+        }
+        return false;
+    }
+}
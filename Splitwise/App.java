@@ -5,6 +5,9 @@ import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
 
 interface DebtSimplificationStrategy{
     List<String> simplify(Map<String, Double> balances);
@@ -78,12 +81,17 @@ class SplitExpenseManager{
 
     public void addExpense(Expense expense){
         double splitAmount = expense.amount / expense.splitBetween.length;
-        balances.put(expense.paidBy, balances.getOrDefault(expense.paidBy, 0.0) + expense.amount);
+        // merge is atomic per key; getOrDefault + put lost updates under concurrency
+        balances.merge(expense.paidBy, expense.amount, Double::sum);
         for(String user : expense.splitBetween){
-            balances.put(user, balances.getOrDefault(user, 0.0) - splitAmount);
+            balances.merge(user, -splitAmount, Double::sum);
         }
         
     }
+
+    public Map<String, Double> getBalances(){
+        return balances;
+    }
     public void simplifyDebts(DebtSimplificationStrategy strategy){
         // Simplification logic can be implemented here
         for(Map.Entry<String, Double> entry : balances.entrySet()){
@@ -105,7 +113,7 @@ class SplitExpenseManager{
 
 }
 public class App {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         System.out.println("Welcome to Splitwise Application!");
         SplitExpenseManager manager = new SplitExpenseManager();
 
@@ -125,6 +133,257 @@ public class App {
         // Done.
         
         manager.simplifyDebts(new GreedyDebtSimplificationStrategy());
+
+        testConcurrentAddExpense();
+        testStreamingBalanceEngine();
+        testSortedTwoPointerStrategy();
+        testLargeGroupSettlement();
+        testMinimumTransactionStrategy();
+        testMinimumTransactionMatchesBruteForce();
+    }
+
+    // Before addExpense used merge, concurrent expenses overwrote each other's updates.
+    public static void testConcurrentAddExpense() throws InterruptedException{
+        SplitExpenseManager manager = new SplitExpenseManager();
+        String[] group = {"Alice", "Bob", "Charlie", "Dave"};
+        Thread[] threads = new Thread[8];
+        for(int t = 0; t < threads.length; t++){
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 10_000; i++){
+                    manager.addExpense(new Expense("e" + i, 4, "Alice", group));
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+        // 80,000 expenses of 4: Alice paid 320,000 and owes 80,000; the others owe 80,000 each.
+        assert manager.getBalances().get("Alice") == 240_000.0 : "Alice: " + manager.getBalances().get("Alice");
+        assert manager.getBalances().get("Bob") == -80_000.0 : "Bob: " + manager.getBalances().get("Bob");
+        System.out.println("Concurrent addExpense Test Passed!");
+    }
+
+    // 8 stream partitions ingest 1M expenses, half one at a time and half in micro-batches
+    // of 500. Uneven splits must not leak a cent and no update may be lost.
+    public static void testStreamingBalanceEngine() throws InterruptedException{
+        StreamingBalanceEngine engine = new StreamingBalanceEngine();
+        String[] users = new String[1_000];
+        for(int i = 0; i < users.length; i++){
+            users[i] = "U" + i;
+        }
+        int partitions = 8;
+        int expensesPerPartition = 125_000;
+        Thread[] consumers = new Thread[partitions];
+        long start = System.nanoTime();
+        for(int p = 0; p < partitions; p++){
+            final int partition = p;
+            consumers[p] = new Thread(() -> {
+                List<Expense> batch = new ArrayList<>(500);
+                for(int i = 0; i < expensesPerPartition; i++){
+                    int n = partition * expensesPerPartition + i;
+                    String[] group = {users[n % 1_000], users[(n * 7 + 1) % 1_000], users[(n * 13 + 2) % 1_000]};
+                    Expense expense = new Expense("e" + n, 10.00, users[(n * 31) % 1_000], group); // 1000 cents / 3
+                    if(partition % 2 == 0){
+                        engine.ingest(expense);
+                    }else{
+                        batch.add(expense);
+                        if(batch.size() == 500){
+                            engine.ingestBatch(batch);
+                            batch.clear();
+                        }
+                    }
+                }
+                engine.ingestBatch(batch);
+            });
+            consumers[p].start();
+        }
+        for(Thread consumer : consumers){
+            consumer.join();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Replay single-threaded in plain cents to get the expected balances.
+        long[] expected = new long[users.length];
+        for(int n = 0; n < partitions * expensesPerPartition; n++){
+            int[] group = {n % 1_000, (n * 7 + 1) % 1_000, (n * 13 + 2) % 1_000};
+            expected[(n * 31) % 1_000] += 1_000;
+            for(int i = 0; i < 3; i++){
+                expected[group[i]] -= 333 + (i == 0 ? 1 : 0);
+            }
+        }
+        long net = 0;
+        for(int i = 0; i < users.length; i++){
+            assert engine.getBalanceCents(users[i]) == expected[i] : users[i] + ": " + engine.getBalanceCents(users[i]) + " != " + expected[i];
+            net += engine.getBalanceCents(users[i]);
+        }
+        assert net == 0 : "Balances must net to zero, off by " + net + " cents";
+
+        // A refund (negative total) splits unevenly too: -1000 cents over 3 is -333, -333, -334.
+        String[] group = {"R1", "R2", "R3"};
+        Expense refund = new Expense("refund", -10.00, "R0", group);
+        StreamingBalanceEngine single = new StreamingBalanceEngine();
+        single.ingest(refund);
+        StreamingBalanceEngine batched = new StreamingBalanceEngine();
+        batched.ingestBatch(List.of(refund));
+        for(StreamingBalanceEngine refunded : new StreamingBalanceEngine[]{single, batched}){
+            assert refunded.getBalanceCents("R0") == -1_000;
+            assert refunded.getBalanceCents("R1") == 333 && refunded.getBalanceCents("R2") == 333 && refunded.getBalanceCents("R3") == 334
+                : "Refund shares must add up to the refund";
+        }
+        System.out.println("Streamed 1M expenses in " + elapsedMs + " ms");
+        System.out.println("Streaming Balance Engine Test Passed!");
     }
     
+
+    public static void testSortedTwoPointerStrategy(){
+        Map<String, Double> balances = new HashMap<>();
+        balances.put("Alice", 200.0);
+        balances.put("Bob", -50.0);
+        balances.put("Charlie", -150.0);
+        List<String> transactions = new SortedTwoPointerDebtSimplificationStrategy().simplify(balances);
+        assert transactions.equals(List.of("Charlie pays 150.0 to Alice", "Bob pays 50.0 to Alice")) : transactions;
+
+        String[] users = {"A", "B", "C", "D", "E"};
+        long[] cents = {-700, 400, -100, 500, -100};
+        Settlements settlements = new SortedTwoPointerDebtSimplificationStrategy().settle(users, cents);
+        assert settlements.size() == 4;
+        assert settlements.user(settlements.from(0)).equals("A") && settlements.user(settlements.to(0)).equals("D") && settlements.cents(0) == 500
+            : "Largest debtor pays largest creditor first";
+        assertSettled(cents, settlements);
+        System.out.println("Sorted Two-Pointer Strategy Test Passed!");
+    }
+
+    // 300k users with random balances: every balance must be settled exactly, in at most
+    // debtors + creditors - 1 transfers and within a few percent of greedy's count.
+    public static void testLargeGroupSettlement(){
+        int n = 300_000;
+        Random random = new Random(7);
+        String[] users = new String[n];
+        long[] cents = new long[n];
+        long sum = 0;
+        for(int i = 0; i < n; i++){
+            users[i] = "U" + i;
+            cents[i] = i == n - 1 ? -sum : random.nextInt(2_000_001) - 1_000_000;
+            sum += cents[i];
+        }
+        Map<String, Double> balances = new HashMap<>();
+        for(int i = 0; i < n; i++){
+            balances.put(users[i], cents[i] / 100.0);
+        }
+
+        long start = System.nanoTime();
+        Settlements settlements = new SortedTwoPointerDebtSimplificationStrategy().settle(users, cents);
+        long arrayMs = (System.nanoTime() - start) / 1_000_000;
+        start = System.nanoTime();
+        List<String> greedy = new GreedyDebtSimplificationStrategy().simplify(balances);
+        long greedyMs = (System.nanoTime() - start) / 1_000_000;
+        double extra = (settlements.size() - greedy.size()) * 100.0 / greedy.size();
+        System.out.printf("Settled %d users: two-pointer %d transfers in %d ms, greedy heaps %d in %d ms (%+.1f%% transfers)%n",
+            n, settlements.size(), arrayMs, greedy.size(), greedyMs, extra);
+
+        long nonZero = Arrays.stream(cents).filter(c -> c != 0).count();
+        assert settlements.size() <= nonZero - 1;
+        assert extra <= 5.0 : "Two-pointer should cost at most a few percent more transfers than greedy, got " + extra + "%";
+        assertSettled(cents, settlements);
+        System.out.println("Large Group Settlement Test Passed!");
+    }
+
+    private static void assertSettled(long[] cents, Settlements settlements){
+        long[] remaining = cents.clone();
+        for(int i = 0; i < settlements.size(); i++){
+            assert settlements.cents(i) > 0;
+            remaining[settlements.from(i)] += settlements.cents(i);
+            remaining[settlements.to(i)] -= settlements.cents(i);
+        }
+        for(long balance : remaining){
+            assert balance == 0 : "Unsettled balance " + balance;
+        }
+    }
+
+    public static void testMinimumTransactionStrategy(){
+        // Two-pointer matching needs 5 transfers; {U0,U1,U2} and {U3,U4,U5} each net to zero, so 4 suffice.
+        String[] users = {"U0", "U1", "U2", "U3", "U4", "U5"};
+        long[] cents = {700, -300, -400, 600, -100, -500};
+        Settlements greedy = new SortedTwoPointerDebtSimplificationStrategy().settle(users, cents);
+        Settlements exact = new MinimumTransactionDebtSimplificationStrategy().settle(users, cents);
+        assert greedy.size() == 5 : "greedy: " + greedy.size();
+        assert exact.size() == 4 : "exact: " + exact.size();
+        assertSettled(cents, exact);
+
+        // Exact pairs are settled directly, and only the rest counts toward the fallback size.
+        long[] withPairs = {700, -300, -400, 600, -100, -500, 250, -250, 90, -90};
+        String[] tenUsers = {"U0", "U1", "U2", "U3", "U4", "U5", "U6", "U7", "U8", "U9"};
+        Settlements paired = new MinimumTransactionDebtSimplificationStrategy(6).settle(tenUsers, withPairs);
+        assert paired.size() == 6 : "exact with pairs: " + paired.size();
+        assertSettled(withPairs, paired);
+
+        Settlements fellBack = new MinimumTransactionDebtSimplificationStrategy(5).settle(users, cents);
+        assert fellBack.size() == greedy.size() : "Above the limit it should fall back to the two-pointer strategy";
+        assertSettled(cents, fellBack);
+
+        for(int size : new int[]{0, -1, 31}){
+            try{
+                new MinimumTransactionDebtSimplificationStrategy(size);
+                assert false : "maxExactGroupSize " + size + " should be rejected";
+            }catch(IllegalArgumentException expected){
+            }
+        }
+
+        System.out.println("Minimum Transaction Strategy Test Passed!");
+    }
+
+    // Random groups of up to 9 compared to an exhaustive search, plus one group of 18
+    // that takes the fork-join path.
+    public static void testMinimumTransactionMatchesBruteForce(){
+        Random random = new Random(11);
+        MinimumTransactionDebtSimplificationStrategy strategy = new MinimumTransactionDebtSimplificationStrategy();
+        for(int round = 0; round < 200; round++){
+            long[] cents = randomZeroSumBalances(random, 2 + random.nextInt(8), 10);
+            Settlements exact = strategy.settle(new String[cents.length], cents);
+            assertSettled(cents, exact);
+            int optimum = bruteForceMinTransfers(cents.clone(), 0);
+            assert exact.size() == optimum : "exact " + exact.size() + " != optimum " + optimum + " for " + Arrays.toString(cents);
+        }
+
+        long[] large = randomZeroSumBalances(random, 18, 100_000); // wide amounts: no exact pairs to shortcut
+        long start = System.nanoTime();
+        Settlements exact = strategy.settle(new String[large.length], large);
+        long exactMs = (System.nanoTime() - start) / 1_000_000;
+        Settlements greedy = new SortedTwoPointerDebtSimplificationStrategy().settle(new String[large.length], large);
+        assertSettled(large, exact);
+        assert exact.size() <= greedy.size();
+        System.out.println("18 users: exact " + exact.size() + " transfers in " + exactMs + " ms, greedy " + greedy.size());
+        System.out.println("Minimum Transaction Brute Force Test Passed!");
+    }
+
+    private static long[] randomZeroSumBalances(Random random, int n, int maxAmount){
+        long[] cents = new long[n];
+        long sum = 0;
+        for(int i = 0; i < n - 1; i++){
+            cents[i] = (random.nextInt(2 * maxAmount + 1) - maxAmount) * 100L;
+            sum += cents[i];
+        }
+        cents[n - 1] = -sum;
+        return cents;
+    }
+
+    // Classic backtracking: settle the first open balance against every later one of the opposite sign.
+    private static int bruteForceMinTransfers(long[] cents, int start){
+        while(start < cents.length && cents[start] == 0){
+            start++;
+        }
+        if(start == cents.length){
+            return 0;
+        }
+        int best = Integer.MAX_VALUE;
+        for(int i = start + 1; i < cents.length; i++){
+            if(cents[i] != 0 && Long.signum(cents[i]) != Long.signum(cents[start])){
+                cents[i] += cents[start];
+                best = Math.min(best, 1 + bruteForceMinTransfers(cents, start + 1));
+                cents[i] -= cents[start];
+            }
+        }
+        return best;
+    }
 }
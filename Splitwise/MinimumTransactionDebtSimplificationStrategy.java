@@ -0,0 +1,267 @@
+package Splitwise;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Fewest possible transfers. A group whose balances sum to zero can settle internally
+// in size - 1 transfers, so for n non-zero balances the minimum is
+//     n - (the largest number of disjoint zero-sum groups they can be split into).
+// That number comes from a DP over subsets of the n users:
+//     dp[mask] = max over i in mask of dp[mask - i]  (+1 if sum(mask) == 0)
+// i.e. the best chain of zero-sum prefixes when users are removed one at a time.
+//
+// - dp is a byte[2^n] (the memo); subset sums are not stored per mask but as
+//   low[mask & lowMask] + high[mask >>> lowBits], two tables of ~2^(n/2) longs.
+// - dp[mask] only needs masks with one bit fewer, so each popcount layer is computed in
+//   parallel on the common ForkJoinPool, layer after layer. A layer's masks are visited
+//   directly in increasing order (Gosper's hack) and split between tasks by their rank
+//   in that order, so no pass ever touches masks of other layers.
+// - Pairs that cancel exactly (a, -a) are settled first; some optimal plan always keeps
+//   them as a group of their own, and each pair removed shrinks the DP fourfold.
+//
+// The DP is O(n 2^n), so above maxExactGroupSize non-zero balances it falls back to
+// SortedTwoPointerDebtSimplificationStrategy.
+class MinimumTransactionDebtSimplificationStrategy implements DebtSimplificationStrategy{
+    private static final int PARALLEL_THRESHOLD = 1 << 14; // masks per fork-join task
+    private static final int MAX_EXACT_GROUP_SIZE = 30;
+    private static final int[][] BINOMIAL = binomials(MAX_EXACT_GROUP_SIZE);
+
+    private final int maxExactGroupSize;
+    private final SortedTwoPointerDebtSimplificationStrategy fallback = new SortedTwoPointerDebtSimplificationStrategy();
+
+    public MinimumTransactionDebtSimplificationStrategy(){
+        this(20);
+    }
+
+    public MinimumTransactionDebtSimplificationStrategy(int maxExactGroupSize){
+        if(maxExactGroupSize < 1 || maxExactGroupSize > MAX_EXACT_GROUP_SIZE){
+            throw new IllegalArgumentException("maxExactGroupSize must be between 1 and " + MAX_EXACT_GROUP_SIZE
+                + " (exact search needs 2^n bytes), got " + maxExactGroupSize);
+        }
+        this.maxExactGroupSize = maxExactGroupSize;
+    }
+
+    @Override
+    public List<String> simplify(Map<String, Double> balances){
+        String[] users = new String[balances.size()];
+        long[] cents = new long[balances.size()];
+        int n = 0;
+        for(Map.Entry<String, Double> entry : balances.entrySet()){
+            users[n] = entry.getKey();
+            cents[n++] = StreamingBalanceEngine.toCents(entry.getValue());
+        }
+        return settle(users, cents).toStrings();
+    }
+
+    public Settlements settle(String[] users, long[] balanceCents){
+        List<int[]> groups = new ArrayList<>(); // user indices of each zero-sum group
+        int[] rest = cancelExactPairs(balanceCents, groups);
+        if(rest.length > maxExactGroupSize){
+            return fallback.settle(users, balanceCents);
+        }
+        if(rest.length > 0){
+            groups.addAll(zeroSumGroups(rest, balanceCents));
+        }
+
+        int transfers = 0;
+        for(int[] group : groups){
+            transfers += group.length - 1;
+        }
+        int[] from = new int[transfers];
+        int[] to = new int[transfers];
+        long[] cents = new long[transfers];
+        int size = 0;
+        for(int[] group : groups){
+            long[] groupCents = new long[group.length];
+            for(int i = 0; i < group.length; i++){
+                groupCents[i] = balanceCents[group[i]];
+            }
+            Settlements local = fallback.settle(users, groupCents); // size - 1 transfers within a zero-sum group
+            for(int i = 0; i < local.size(); i++){
+                from[size] = group[local.from(i)];
+                to[size] = group[local.to(i)];
+                cents[size++] = local.cents(i);
+            }
+        }
+        return new Settlements(users, from, to, cents, size);
+    }
+
+    // Adds a group for every (a, -a) pair and returns the indices of the other non-zero balances.
+    private static int[] cancelExactPairs(long[] balanceCents, List<int[]> groups){
+        Map<Long, List<Integer>> unmatched = new HashMap<>();
+        boolean[] paired = new boolean[balanceCents.length];
+        for(int i = 0; i < balanceCents.length; i++){
+            if(balanceCents[i] == 0){
+                continue;
+            }
+            List<Integer> opposites = unmatched.get(-balanceCents[i]);
+            if(opposites != null && !opposites.isEmpty()){
+                int j = opposites.remove(opposites.size() - 1);
+                paired[i] = true;
+                paired[j] = true;
+                groups.add(new int[]{j, i});
+            }else{
+                unmatched.computeIfAbsent(balanceCents[i], k -> new ArrayList<>()).add(i);
+            }
+        }
+        int count = 0;
+        for(int i = 0; i < balanceCents.length; i++){
+            if(balanceCents[i] != 0 && !paired[i]){
+                count++;
+            }
+        }
+        int[] rest = new int[count];
+        int k = 0;
+        for(int i = 0; i < balanceCents.length; i++){
+            if(balanceCents[i] != 0 && !paired[i]){
+                rest[k++] = i;
+            }
+        }
+        return rest;
+    }
+
+    // Splits the given users into the largest number of zero-sum groups.
+    private static List<int[]> zeroSumGroups(int[] members, long[] balanceCents){
+        int n = members.length;
+        long[] amounts = new long[n];
+        for(int i = 0; i < n; i++){
+            amounts[i] = balanceCents[members[i]];
+        }
+        SubsetSums sums = new SubsetSums(amounts);
+        byte[] dp = new byte[1 << n];
+        for(int layer = 1; layer <= n; layer++){
+            int masks = BINOMIAL[n][layer];
+            Layer task = new Layer(dp, sums, layer, 0, masks);
+            if(masks <= PARALLEL_THRESHOLD){
+                task.compute();
+            }else{
+                ForkJoinPool.commonPool().invoke(task);
+            }
+        }
+
+        // Walk back from the full set along a best chain; every zero-sum mask on it closes a group.
+        List<int[]> groups = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        int mask = (1 << n) - 1;
+        while(mask != 0){
+            int zero = sums.sum(mask) == 0 ? 1 : 0;
+            for(int bits = mask; bits != 0; bits &= bits - 1){
+                int bit = Integer.numberOfTrailingZeros(bits);
+                if(dp[mask ^ (1 << bit)] + zero == dp[mask]){
+                    current.add(members[bit]);
+                    mask ^= 1 << bit;
+                    break;
+                }
+            }
+            if(sums.sum(mask) == 0){
+                groups.add(current.stream().mapToInt(Integer::intValue).toArray());
+                current.clear();
+            }
+        }
+        return groups;
+    }
+
+    // sum(mask) = low[mask & lowMask] + high[mask >>> lowBits]
+    private static final class SubsetSums{
+        private final int lowBits;
+        private final int lowMask;
+        private final long[] low;
+        private final long[] high;
+
+        SubsetSums(long[] amounts){
+            int n = amounts.length;
+            this.lowBits = n / 2;
+            this.lowMask = (1 << lowBits) - 1;
+            this.low = new long[1 << lowBits];
+            this.high = new long[1 << (n - lowBits)];
+            for(int mask = 1; mask < low.length; mask++){
+                int bit = Integer.numberOfTrailingZeros(mask);
+                low[mask] = low[mask & (mask - 1)] + amounts[bit];
+            }
+            for(int mask = 1; mask < high.length; mask++){
+                int bit = Integer.numberOfTrailingZeros(mask);
+                high[mask] = high[mask & (mask - 1)] + amounts[lowBits + bit];
+            }
+        }
+
+        long sum(int mask){
+            return low[mask & lowMask] + high[mask >>> lowBits];
+        }
+    }
+
+    private static int[][] binomials(int n){
+        int[][] binomial = new int[n + 1][n + 1];
+        for(int i = 0; i <= n; i++){
+            binomial[i][0] = 1;
+            for(int k = 1; k <= i; k++){
+                binomial[i][k] = binomial[i - 1][k - 1] + binomial[i - 1][k];
+            }
+        }
+        return binomial;
+    }
+
+    // The mask with `bits` bits set whose rank among such masks, in increasing order, is
+    // `rank` (combinatorial number system).
+    private static int unrank(int rank, int bits){
+        int mask = 0;
+        for(int i = bits; i > 0; i--){
+            int c = i - 1;
+            while(BINOMIAL[c + 1][i] <= rank){
+                c++;
+            }
+            mask |= 1 << c;
+            rank -= BINOMIAL[c][i];
+        }
+        return mask;
+    }
+
+    // Next larger mask with the same number of bits set (Gosper's hack).
+    private static int nextWithSameBitCount(int mask){
+        int lowest = mask & -mask;
+        int ripple = mask + lowest;
+        return (((ripple ^ mask) >>> 2) / lowest) | ripple;
+    }
+
+    // Fills dp for the masks with exactly `layer` bits set whose ranks are in [from, to).
+    private static final class Layer extends RecursiveAction{
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] dp;
+        private final SubsetSums sums;
+        private final int layer;
+        private final int from;
+        private final int to;
+
+        Layer(byte[] dp, SubsetSums sums, int layer, int from, int to){
+            this.dp = dp;
+            this.sums = sums;
+            this.layer = layer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from > PARALLEL_THRESHOLD){
+                int mid = (from + to) >>> 1;
+                invokeAll(new Layer(dp, sums, layer, from, mid), new Layer(dp, sums, layer, mid, to));
+                return;
+            }
+            int mask = unrank(from, layer);
+            for(int rank = from; rank < to; rank++){
+                int best = 0;
+                for(int bits = mask; bits != 0; bits &= bits - 1){
+                    best = Math.max(best, dp[mask & ~Integer.lowestOneBit(bits)]);
+                }
+                dp[mask] = (byte) (best + (sums.sum(mask) == 0 ? 1 : 0));
+                if(rank + 1 < to){
+                    mask = nextWithSameBitCount(mask);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package Splitwise;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Balances for a high-rate expense stream. Amounts are kept as long cents in one
+// LongAdder per user: adds from many threads go to different cells instead of
+// retrying a CAS on one value, nothing is boxed, and no update can be lost.
+//
+// An expense is split exactly: the share is floorDiv(total, n) cents and the first
+// floorMod(total, n) participants owe one cent more, so every expense nets to zero.
+// Floor rather than truncating division keeps the remainder in [0, n) for refunds
+// (negative totals) too; with / and % it would be negative and a cent would leak.
+//
+// ingestBatch() is the streaming mode: a consumer hands over a polled micro-batch,
+// which is folded into one delta per user before touching the shared adders. That pays
+// off when a batch keeps hitting the same users (a busy group); for batches of mostly
+// distinct users ingest() is cheaper.
+class StreamingBalanceEngine{
+    private final Map<String, LongAdder> balanceCents = new ConcurrentHashMap<>();
+
+    public void ingest(Expense expense){
+        long total = toCents(expense.amount);
+        long share = Math.floorDiv(total, expense.splitBetween.length);
+        long remainder = Math.floorMod(total, expense.splitBetween.length);
+        adder(expense.paidBy).add(total);
+        for(int i = 0; i < expense.splitBetween.length; i++){
+            adder(expense.splitBetween[i]).add(-(share + (i < remainder ? 1 : 0)));
+        }
+    }
+
+    public void ingestBatch(Collection<Expense> batch){
+        Map<String, long[]> deltas = new HashMap<>(); // long[1] as a mutable cell, no boxing per add
+        for(Expense expense : batch){
+            long total = toCents(expense.amount);
+            long share = Math.floorDiv(total, expense.splitBetween.length);
+            long remainder = Math.floorMod(total, expense.splitBetween.length);
+            deltas.computeIfAbsent(expense.paidBy, k -> new long[1])[0] += total;
+            for(int i = 0; i < expense.splitBetween.length; i++){
+                deltas.computeIfAbsent(expense.splitBetween[i], k -> new long[1])[0] -= share + (i < remainder ? 1 : 0);
+            }
+        }
+        for(Map.Entry<String, long[]> delta : deltas.entrySet()){
+            if(delta.getValue()[0] != 0){
+                adder(delta.getKey()).add(delta.getValue()[0]);
+            }
+        }
+    }
+
+    public long getBalanceCents(String userId){
+        LongAdder adder = balanceCents.get(userId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // In the units DebtSimplificationStrategy works with. Each user's sum is exact, but
+    // the map is only a consistent cut once ingestion has paused.
+    public Map<String, Double> getBalances(){
+        Map<String, Double> balances = new HashMap<>();
+        for(Map.Entry<String, LongAdder> entry : balanceCents.entrySet()){
+            balances.put(entry.getKey(), entry.getValue().sum() / 100.0);
+        }
+        return balances;
+    }
+
+    private LongAdder adder(String userId){
+        LongAdder adder = balanceCents.get(userId); // lock-free fast path for known users
+        return adder != null ? adder : balanceCents.computeIfAbsent(userId, k -> new LongAdder());
+    }
+
+    static long toCents(double amount){
+        return Math.round(amount * 100);
+    }
+}
@@ -0,0 +1,40 @@
+package BenchmarkSuite;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the hot-path benchmarks at 1, 4, 16 and 64 threads in two modes:
+//   Throughput  -> ops/us
+//   SampleTime  -> latency distribution (p50 / p90 / p99 / p99.9 ...)
+// with the GC profiler attached, which adds gc.alloc.rate and gc.alloc.rate.norm (B/op).
+//
+//   java -cp target/benchmarks.jar BenchmarkSuite.BaselineRunner [benchmark-regex]
+//
+// Single benchmarks can also be run through the JMH CLI, e.g.
+//   java -jar target/benchmarks.jar AllowRequestBenchmark -t 16 -bm sample -prof gc
+public class BaselineRunner {
+    private static final int[] THREADS = {1, 4, 16, 64};
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "AllowRequestBenchmark|LRUCacheBenchmark|ParkingLotBenchmark";
+        for (int threads : THREADS) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .mode(Mode.Throughput)
+                .mode(Mode.SampleTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .addProfiler(GCProfiler.class)
+                .result("jmh-result-" + threads + "-threads.json")
+                .resultFormat(ResultFormatType.JSON);
+            new Runner(options.build()).run();
+        }
+    }
+}
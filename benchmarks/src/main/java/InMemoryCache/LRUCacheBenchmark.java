@@ -0,0 +1,72 @@
+package InMemoryCache;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// getKey/putKey on one cache shared by every benchmark thread. Keys are drawn from
+// twice the capacity, so about half of the gets miss and most puts evict.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LRUCacheBenchmark {
+    private static final int CAPACITY = 1 << 16;
+    private static final int KEY_SPACE = CAPACITY * 2;
+
+    @Param({"LRUCache", "SegmentedLRUCache"})
+    public String cache;
+
+    private LRUCache<Integer, Integer> lruCache;
+    private SegmentedLRUCache<Integer, Integer> segmentedCache;
+    private Integer[] keys;
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next() {
+            return random.nextInt(KEY_SPACE);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        keys = new Integer[KEY_SPACE]; // pre-boxed so the benchmark measures the cache, not Integer.valueOf
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = i;
+        }
+        lruCache = new LRUCache<>(CAPACITY);
+        segmentedCache = new SegmentedLRUCache<>(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            lruCache.putKey(keys[i], keys[i]);
+            segmentedCache.putKey(keys[i], keys[i]);
+        }
+    }
+
+    @Benchmark
+    public Node<Integer, Integer> getKey(ThreadKeys threadKeys) {
+        Integer key = keys[threadKeys.next()];
+        return "LRUCache".equals(cache) ? lruCache.getKey(key) : segmentedCache.getKey(key);
+    }
+
+    @Benchmark
+    public void putKey(ThreadKeys threadKeys) {
+        Integer key = keys[threadKeys.next()];
+        if ("LRUCache".equals(cache)) {
+            lruCache.putKey(key, key);
+        } else {
+            segmentedCache.putKey(key, key);
+        }
+    }
+}
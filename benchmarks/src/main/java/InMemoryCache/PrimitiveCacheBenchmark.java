@@ -0,0 +1,56 @@
+package InMemoryCache;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Hit path of LongLongLRUCache against LRUCache<Long,Long>; run with -prof gc to see
+// the allocation difference (0 B/op vs a boxed Long per lookup).
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrimitiveCacheBenchmark {
+    private static final int ENTRIES = 1 << 20;
+
+    private LongLongLRUCache primitive;
+    private LRUCache<Long, Long> generic;
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+        private final SplittableRandom random = new SplittableRandom();
+
+        long next() {
+            return random.nextInt(ENTRIES);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        primitive = new LongLongLRUCache(ENTRIES);
+        generic = new LRUCache<>(ENTRIES);
+        for (long i = 0; i < ENTRIES; i++) {
+            primitive.putKey(i, i);
+            generic.putKey(i, i);
+        }
+    }
+
+    @Benchmark
+    public long longLongGetKey(ThreadKeys threadKeys) {
+        return primitive.getKey(threadKeys.next(), -1);
+    }
+
+    @Benchmark
+    public Long genericGetKey(ThreadKeys threadKeys) {
+        return generic.getKey(threadKeys.next()).value;
+    }
+}
@@ -0,0 +1,92 @@
+package ParkingLot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One lot shared by every benchmark thread (queue-based and bitmap versions). Each invocation parks a vehicle and
+// unparks it again, so the lot never fills and both hot paths are measured.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParkingLotBenchmark {
+    private static final int SPOTS = 10_000;
+
+    private ParkingLot parkingLot;
+    private BitmapParkingLot bitmapParkingLot;
+    private ParkingLot nearestParkingLot;
+    private NearestSpotStrategy nearestStrategy;
+    private final ParkingStrategy strategy = new DefaultParkingStrategy();
+
+    @State(Scope.Thread)
+    public static class Driver {
+        private static final AtomicInteger IDS = new AtomicInteger();
+        final String vehicleId;
+        final Entrance entrance;
+
+        public Driver() {
+            int id = IDS.incrementAndGet();
+            vehicleId = "V" + id;
+            entrance = new Entrance("F" + (id % 10), id * 37 % (SPOTS / 10));
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots = carSpots();
+        bitmapParkingLot = new BitmapParkingLot(availableSpots);
+        parkingLot = new ParkingLot(availableSpots);
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> nearestSpots = carSpots(); // the strategy drains its lot's queue
+        nearestStrategy = new NearestSpotStrategy(nearestSpots, 100);
+        nearestParkingLot = new ParkingLot(nearestSpots);
+    }
+
+    private static Map<ParkingSpotType, BlockingQueue<ParkingSpot>> carSpots() {
+        Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots = new HashMap<>();
+        availableSpots.put(ParkingSpotType.CAR, new LinkedBlockingQueue<>());
+        for (int i = 0; i < SPOTS; i++) {
+            availableSpots.get(ParkingSpotType.CAR).offer(new ParkingSpot("C" + i, "F" + (i % 10), ParkingSpotType.CAR));
+        }
+        return availableSpots;
+    }
+
+    @Benchmark
+    public boolean parkAndUnpark(Driver driver) {
+        boolean parked = parkingLot.parkVehicle(ParkingSpotType.CAR, driver.vehicleId, strategy);
+        return parkingLot.unparkVehicle(driver.vehicleId) && parked;
+    }
+
+    // NearestSpotStrategy on its own lot, each driver always using the same entrance.
+    @Benchmark
+    public boolean nearestParkAndUnpark(Driver driver) {
+        boolean parked = nearestParkingLot.parkVehicle(ParkingSpotType.CAR, driver.vehicleId, driver.entrance, nearestStrategy);
+        return nearestParkingLot.unparkVehicle(driver.vehicleId) && parked;
+    }
+
+    @Benchmark
+    public boolean bitmapParkAndUnpark(Driver driver) {
+        int ticket = bitmapParkingLot.parkVehicle(ParkingSpotType.CAR, driver.vehicleId);
+        return ticket >= 0 && bitmapParkingLot.unparkVehicle(ticket);
+    }
+
+    // The bitmap core without recording who parked.
+    @Benchmark
+    public boolean bitmapAllocateAndRelease() {
+        int index = bitmapParkingLot.allocateSpot(ParkingSpotType.CAR);
+        return index >= 0 && bitmapParkingLot.releaseSpot(index);
+    }
+}
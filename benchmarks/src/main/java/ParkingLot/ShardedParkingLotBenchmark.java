@@ -0,0 +1,65 @@
+package ParkingLot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The same 30,000 car spots split into 1, 16 or 300 ParkingLot shards. Each driver
+// enters at its own home shard; with one shard every thread shares one queue and map.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShardedParkingLotBenchmark {
+    private static final int SPOTS = 30_000;
+
+    @Param({"1", "16", "300"})
+    public int shards;
+
+    private ShardedParkingLot parkingLot;
+
+    @State(Scope.Thread)
+    public static class Driver {
+        private static final AtomicInteger IDS = new AtomicInteger();
+        final int id = IDS.incrementAndGet();
+        final String vehicleId = "V" + id;
+    }
+
+    @Setup
+    public void setUp() {
+        List<ParkingLot> lots = new ArrayList<>();
+        List<ParkingStrategy> strategies = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            Map<ParkingSpotType, BlockingQueue<ParkingSpot>> availableSpots = new HashMap<>();
+            availableSpots.put(ParkingSpotType.CAR, new LinkedBlockingQueue<>());
+            for (int i = 0; i < SPOTS / shards; i++) {
+                availableSpots.get(ParkingSpotType.CAR).offer(new ParkingSpot("L" + shard + "-C" + i, "F1", ParkingSpotType.CAR));
+            }
+            lots.add(new ParkingLot(availableSpots));
+            strategies.add(new DefaultParkingStrategy());
+        }
+        parkingLot = new ShardedParkingLot(lots, strategies);
+    }
+
+    @Benchmark
+    public boolean parkAndUnpark(Driver driver) {
+        int shard = parkingLot.parkVehicle(ParkingSpotType.CAR, driver.vehicleId, driver.id % shards);
+        return parkingLot.unparkVehicle(driver.vehicleId) && shard >= 0;
+    }
+}
@@ -0,0 +1,40 @@
+package RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One limiter shared by every benchmark thread, like a global API limit.
+// The bucket is sized so calls hit both the admit and the throttle paths.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AllowRequestBenchmark {
+
+    @Param({"synchronized", "lockFree"})
+    public String limiter;
+
+    private RateLimiter rateLimiter;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = "lockFree".equals(limiter)
+            ? new LockFreeTokenBucketRateLimiter(1_000, 100_000)
+            : new TokenBucketRateLimiter(1_000, 100_000);
+    }
+
+    @Benchmark
+    public boolean allowRequest() {
+        return rateLimiter.allowRequest();
+    }
+}
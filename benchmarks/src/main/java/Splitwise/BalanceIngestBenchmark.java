@@ -0,0 +1,78 @@
+package Splitwise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Expenses/us into one shared ledger: SplitExpenseManager.addExpense (Double merge per
+// user) against StreamingBalanceEngine, one expense at a time and in micro-batches.
+// Run with -t 1/4/16 to compare scaling.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BalanceIngestBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"20", "1000"}) // active users: few means a batch folds many updates per user
+    public int users;
+
+    private SplitExpenseManager manager;
+    private StreamingBalanceEngine engine;
+
+    @State(Scope.Thread)
+    public static class Stream {
+        final List<Expense> batch = new ArrayList<>(BATCH);
+        private final SplittableRandom random = new SplittableRandom();
+
+        @Setup
+        public void setUp(BalanceIngestBenchmark benchmark) {
+            int users = benchmark.users;
+            for (int i = 0; i < BATCH; i++) {
+                String[] group = {"U" + random.nextInt(users), "U" + random.nextInt(users), "U" + random.nextInt(users)};
+                batch.add(new Expense("e" + i, 10.00, "U" + random.nextInt(users), group));
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        manager = new SplitExpenseManager();
+        engine = new StreamingBalanceEngine();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addExpense(Stream stream) {
+        for (Expense expense : stream.batch) {
+            manager.addExpense(expense);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void ingest(Stream stream) {
+        for (Expense expense : stream.batch) {
+            engine.ingest(expense);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void ingestBatch(Stream stream) {
+        engine.ingestBatch(stream.batch);
+    }
+}
@@ -0,0 +1,59 @@
+package Splitwise;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time to plan one group's settlement, exact DP against the two-pointer matching, for
+// groups of 8 to 24 members. Amounts are spread widely so there are no exact pairs and
+// the DP runs over all 2^n subsets.
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DebtSimplificationBenchmark {
+
+    @Param({"8", "12", "16", "20", "24"})
+    public int groupSize;
+
+    private String[] users;
+    private long[] cents;
+    private final MinimumTransactionDebtSimplificationStrategy exact = new MinimumTransactionDebtSimplificationStrategy(24);
+    private final SortedTwoPointerDebtSimplificationStrategy twoPointer = new SortedTwoPointerDebtSimplificationStrategy();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(groupSize);
+        users = new String[groupSize];
+        cents = new long[groupSize];
+        long sum = 0;
+        for (int i = 0; i < groupSize; i++) {
+            users[i] = "U" + i;
+            cents[i] = i == groupSize - 1 ? -sum : random.nextInt(2_000_001) - 1_000_000;
+            sum += cents[i];
+        }
+    }
+
+    @Benchmark
+    public Settlements exact() {
+        return exact.settle(users, cents);
+    }
+
+    @Benchmark
+    public Settlements twoPointer() {
+        return twoPointer.settle(users, cents);
+    }
+}